@@ -50,7 +50,7 @@ public class AdminPanel extends Activity {
 		currentUser = (User) getIntent().getParcelableExtra("usr");
 		
 		// instantiate object of the SVMain class and bind the vManager object to it.
-		// next, initiate the serial connection with the Arduino
+		// next, ensure the serial connection with the Arduino is open
 		
 		svmainObj = new SVMain(getApplicationContext());
 		svmainObj.setVManager(vManager);
@@ -111,8 +111,7 @@ public class AdminPanel extends Activity {
 		
 		// if the user clicks on the "Load Database" button, the application is referred to
 		// the LoadData activity. the VoteManager object is passed to the next activity
-		// to maintain concurrency, and the serial connection is closed to allow for smooth
-		// transition.
+		// to maintain concurrency.
 		
 		btnLoadDB.setOnClickListener(new View.OnClickListener() {
 			public void onClick(View v) {
@@ -120,15 +119,13 @@ public class AdminPanel extends Activity {
 				toLoadDB.putExtra("vManager", vManager);
 				startActivity(toLoadDB);
 				finish();
-				svmainObj.fpClose();
 			}
 		});
 		
 		
 		// if the user clicks on the Report button, the application is referred to
 		// the Report activity. the VoteManager object is passed to the next activity
-		// to maintain concurrency, and the serial connection is closed to allow for smooth
-		// transition. the object bearing the information of the current user 
+		// to maintain concurrency. the object bearing the information of the current user 
 		// running the session is also passed.
 		
 		btnReport.setOnClickListener(new View.OnClickListener() {
@@ -139,14 +136,12 @@ public class AdminPanel extends Activity {
 				toReport.putExtra("usr", currentUser);
 				startActivity(toReport);
 				finish();
-				svmainObj.fpClose();
 			}
 		});
 		
 		// if the user clicks on the "Add New Voter" button, the application is referred to
 		// the NewVoter activity. the VoteManager object is passed to the next activity
-		// to maintain concurrency, and the serial connection is closed to allow for smooth
-		// transition. the object bearing the information of the current user 
+		// to maintain concurrency. the object bearing the information of the current user 
 		// running the session is also passed.
 		
 		btnAddVoter.setOnClickListener(new View.OnClickListener() {
@@ -157,14 +152,12 @@ public class AdminPanel extends Activity {
 				toAddVoter.putExtra("usr", currentUser);
 				startActivity(toAddVoter);
 				finish();
-				svmainObj.fpClose();
 			}
 		});
 
 		// if the user clicks on the "Remove Existing User" button, the application is 
 		// referred to the RemoveUser activity. the VoteManager object is passed to the 
-		// next activity to maintain concurrency, and the serial connection is closed to allow 
-		// for smooth transition. the object bearing the information of the current user 
+		// next activity to maintain concurrency. the object bearing the information of the current user 
 		// running the session is also passed.
 		
 		btnRemoveVoter.setOnClickListener(new View.OnClickListener() {
@@ -175,15 +168,13 @@ public class AdminPanel extends Activity {
 				toRemoveUser.putExtra("usr", currentUser);
 				startActivity(toRemoveUser);
 				finish();
-				svmainObj.fpClose();
 			}
 		});
 		
 		
 		// if the user clicks on the "Exit" button, the application is referred to
 		// the Intro activity, rolling it back to the beginning.
-		// the VoteManager object is passed to the next activity to maintain concurrency, 
-		// and the serial connection is closed to allow for smooth transition.
+		// the VoteManager object is passed to the next activity to maintain concurrency.
 		
 		btnExitPanel.setOnClickListener(new View.OnClickListener() {
 			@Override
@@ -192,7 +183,6 @@ public class AdminPanel extends Activity {
 				toIntro.putExtra("vManager", vManager);
 				startActivity(toIntro);
 				finish();
-				svmainObj.fpClose();
 			}
 		});
 	}
@@ -213,10 +203,20 @@ public class AdminPanel extends Activity {
 	// the disableVote method is invoked when the "Disable Vote" button is clicked in the
 	// panel. the votingStatus field in the VoteManager object is set to false, while
 	// the "Disable Vote" button is disabled and the "Enable Vote" button is activated
-	// to allow for the process to be reversed.
+	// to allow for the process to be reversed. the tally held in memory is written to the
+	// database in the background, as the polls are closed.
 	
 	public void disableVote() {
 		vManager.setVotingStatus(false);
+		svmainObj.checkpointTallyAsync(new DBExecutor.Callback<Boolean>() {
+			@Override
+			public void onResult(Boolean written) {
+				if(written == null || !written) {
+					Toast.makeText(AdminPanel.this, "The tally could not be written to the database.",
+							Toast.LENGTH_SHORT).show();
+				}
+			}
+		});
 		btnEnableVote.setEnabled(true);
 		btnDisableVote.setEnabled(false);
 		Toast.makeText(AdminPanel.this, "Voting process disabled.", Toast.LENGTH_SHORT).show();
@@ -1,9 +1,11 @@
 /*************************************************************
  * BallotArrayAdapter Class
  * An extension to the ArrayAdapter class which allows the ListView in the EBallot activity
- * to display entity image, as well as the name of the candidate.
+ * to display entity image, as well as the name of the candidate. The rows are reused as the
+ * list is scrolled, and the symbols are decoded in the background and held by the SymbolCache,
+ * such that the ballot is displayed before the symbols are ready.
  * A part of the SmartVote application, developed by ZedApps.
- * 
+ *
  * @author Shamah M Zoha
  * @email shamah1992@gmail.com
  * @github bitbucket.org/smzoha/
@@ -14,6 +16,8 @@ package com.zedapps.smartvote;
 import com.zedapps.smartvote.modules.Candidate;
 
 import android.content.Context;
+import android.graphics.Bitmap;
+import android.os.AsyncTask;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -23,11 +27,24 @@ import android.widget.TextView;
 
 public class BallotArrayAdapter extends ArrayAdapter<Candidate>{
 	
+	private static final int SYMBOL_SIZE = 150; // the width and height the symbols are displayed at, in px
+	
 	Context appContext; // the context of the application
 	int layoutResourceID; // the layout resource ID obtained
 	Candidate[] candidateArray; // an array of candidate objects, holding the candidate name
 								// and entity symbol path
 	
+	// the views of a row, held by the row, such that they are not looked up each time the row
+	// is reused. the path of the symbol displayed is held as well, along with the task decoding
+	// it, if any.
+	
+	static class ViewHolder {
+		TextView txtCName;
+		ImageView imgESym;
+		String symbolPath;
+		SymbolTask task;
+	}
+	
 	
 	// constructor that assigns the values provided into the variables
 	
@@ -39,27 +56,83 @@ public class BallotArrayAdapter extends ArrayAdapter<Candidate>{
 	}
 	
 	
-	// overriding the getView method of the ArrayAdapter class, which returns a View object
-	// obtains the LayoutInflator object from the Context object, before assigning the
-	// "ballot_layout.xml" layout to it. the TextView and ImageView objects are obtained
-	// from the layout, before the image and the text from the current candidate object is
-	// assigned to it. finally, the image size is defined to 150x150 px, to allow for a
-	// better viewing in the device screen, before the View object representing the row
-	// is returned.
+	// overriding the getView method of the ArrayAdapter class, which returns a View object.
+	// should no row be provided for reuse, the "ballot_layout.xml" layout is inflated, and its
+	// TextView and ImageView objects are held by the row, with the image size defined to
+	// 150x150 px, to allow for a better viewing in the device screen. the name of the current
+	// candidate is then assigned, along with the symbol, should it be decoded already. else,
+	// the symbol is decoded in the background, and assigned once ready.
 	
 	@Override
 	public View getView(int pos, View convertView, ViewGroup parent) {
-		LayoutInflater lInflater = (LayoutInflater) appContext.getSystemService(Context.LAYOUT_INFLATER_SERVICE);
-		View rowView = lInflater.inflate(R.layout.ballot_layout, parent, false);
-		TextView txtCName = (TextView) rowView.findViewById(R.id.cName);
-		ImageView imgESym = (ImageView) rowView.findViewById(R.id.eSym);
+		View rowView = convertView;
+		ViewHolder holder;
+		
+		if(rowView == null) {
+			LayoutInflater lInflater = (LayoutInflater) appContext.getSystemService(Context.LAYOUT_INFLATER_SERVICE);
+			rowView = lInflater.inflate(layoutResourceID, parent, false);
+			
+			holder = new ViewHolder();
+			holder.txtCName = (TextView) rowView.findViewById(R.id.cName);
+			holder.imgESym = (ImageView) rowView.findViewById(R.id.eSym);
+			holder.imgESym.getLayoutParams().height = SYMBOL_SIZE;
+			holder.imgESym.getLayoutParams().width = SYMBOL_SIZE;
+			rowView.setTag(holder);
+		} else {
+			holder = (ViewHolder) rowView.getTag();
+		}
+		
+		Candidate candidate = candidateArray[pos];
+		holder.txtCName.setText(candidate.getCandidate_name());
+		
+		String path = candidate.getEntity_symbol_path();
+		if(path.equals(holder.symbolPath)) {
+			return rowView;
+		}
+		
+		// the row is displaying another candidate now, hence the symbol being decoded for the
+		// previous one, if any, is no longer needed
 		
-		txtCName.setText(candidateArray[pos].getCandidate_name());
-		imgESym.setImageBitmap(candidateArray[pos].getEntity_symbol());
+		if(holder.task != null) {
+			holder.task.cancel(false);
+			holder.task = null;
+		}
 		
-		imgESym.getLayoutParams().height=150;
-		imgESym.getLayoutParams().width=150;
+		holder.symbolPath = path;
+		Bitmap symbol = SymbolCache.get(path);
+		holder.imgESym.setImageBitmap(symbol);
+		
+		if(symbol == null) {
+			holder.task = new SymbolTask(holder, path);
+			holder.task.executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
+		}
 		
 		return rowView;
 	}
+	
+	// the task that decodes a symbol in the background, and assigns it to the row provided,
+	// should the row still be displaying the same symbol
+	
+	static class SymbolTask extends AsyncTask<Void, Void, Bitmap> {
+		private final ViewHolder holder;
+		private final String path;
+		
+		SymbolTask(ViewHolder holder, String path) {
+			this.holder = holder;
+			this.path = path;
+		}
+		
+		@Override
+		protected Bitmap doInBackground(Void... params) {
+			return SymbolCache.load(path, SYMBOL_SIZE, SYMBOL_SIZE);
+		}
+		
+		@Override
+		protected void onPostExecute(Bitmap symbol) {
+			if(holder.task == this) {
+				holder.task = null;
+				holder.imgESym.setImageBitmap(symbol);
+			}
+		}
+	}
 }
@@ -0,0 +1,85 @@
+/*************************************************************
+ * CandidateSet Class
+ * Holds the NID values of the users that the live fingerprint impression is to be matched
+ * against, in the order that they are to be searched - the administrators first, followed by
+ * the voters who are yet to vote. The voters who have voted already are held separately, and
+ * searched last, such that finding a voter who is yet to vote costs less as the turnout rises.
+ * A repeated attempt to vote, or a fingerprint that is not enrolled, is still searched against
+ * every user, through the same bank by bank search as the others.
+ * A part of the SmartVote application, developed by ZedApps.
+ *
+ * @author Shamah M Zoha
+ * @email shamah1992@gmail.com
+ * @github bitbucket.org/smzoha/
+ ************************************************************/
+
+package com.zedapps.smartvote;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+public class CandidateSet {
+	
+	private final LinkedHashSet<String> admins = new LinkedHashSet<String>();	// the administrators and super administrators
+	private final LinkedHashSet<String> unvoted = new LinkedHashSet<String>();	// the voters who are yet to vote
+	private final LinkedHashSet<String> voted = new LinkedHashSet<String>();	// the voters who have voted already
+	
+	// adds a user to the set, based on the flags of the user. the administrators are always
+	// searched first, regardless of whether they have voted. the users who are neither voters
+	// nor administrators are left out, since they cannot be let in anyway.
+	
+	public synchronized void add(String nid, boolean hasVoted, boolean isVoter, boolean isAdmin) {
+		remove(nid);
+		
+		if(isAdmin) {
+			admins.add(nid);
+		} else if(isVoter) {
+			if(hasVoted) {
+				voted.add(nid);
+			} else {
+				unvoted.add(nid);
+			}
+		}
+	}
+	
+	// moves the voter to the set of voters who have voted. kept in step with the hasVoted flag.
+	
+	public synchronized void markVoted(String nid) {
+		if(unvoted.remove(nid)) {
+			voted.add(nid);
+		}
+	}
+	
+	// removes the user from the set
+	
+	public synchronized void remove(String nid) {
+		admins.remove(nid);
+		unvoted.remove(nid);
+		voted.remove(nid);
+	}
+	
+	// returns the NID values of the administrators
+	
+	public synchronized List<String> getAdmins() {
+		return new ArrayList<String>(admins);
+	}
+	
+	// returns the NID values to be searched first - the administrators, followed by the voters
+	// who are yet to vote
+	
+	public synchronized List<String> getSearchOrder() {
+		ArrayList<String> order = new ArrayList<String>(admins.size() + unvoted.size());
+		order.addAll(admins);
+		order.addAll(unvoted);
+		return order;
+	}
+	
+	// returns the NID values of the voters who have voted already, which are only searched if
+	// there is no match among the others, to detect a repeated attempt to vote. the search of
+	// these is as costly as that of the others.
+	
+	public synchronized List<String> getVoted() {
+		return new ArrayList<String>(voted);
+	}
+}
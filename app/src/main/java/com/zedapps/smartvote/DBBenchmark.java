@@ -0,0 +1,310 @@
+/*************************************************************
+ * DBBenchmark Class
+ * Measures the latency of committing a vote to the database, i.e. incrementing the vote count
+ * of the entity and setting the hasVoted flag of the voter. The votes are committed to a copy
+ * of the database, such that the tally of the election is never touched. The latency is
+ * measured both the way the votes used to be committed - opening the database and compiling
+ * the query for every update - and over a shared connection, both as separate updates through
+ * statements compiled once and as the single transaction that the votes are cast in through the
+ * DatabaseManager class. A simulated election day can also
+ * be replayed against each of the storage presets defined by the DBProfile class.
+ * A part of the SmartVote application, developed by ZedApps.
+ *
+ * @author Shamah M Zoha
+ * @email shamah1992@gmail.com
+ * @github bitbucket.org/smzoha/
+ ************************************************************/
+
+package com.zedapps.smartvote;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+import org.apache.commons.io.FileUtils;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.os.Environment;
+
+public class DBBenchmark {
+	
+	// constants that contain the location of the database files, the name of the database
+	// file and the name of the copy that the votes are committed to
+	
+	private static final String db_loc = Environment.getDataDirectory().getAbsolutePath() +
+			"/data/com.zedapps.smartvote/databases/";
+	private static final String db_name = "svdatabase.db";
+	private static final String bench_name = "svbench.db";
+	
+	// runs the benchmark for the number of votes provided, or as many as there are users in the
+	// database, and returns the result as text. the copy of the database is removed at the end.
+	// should not be run on the UI thread, since each run commits the votes twice over.
+	
+	public static String run(Context context, int votes) {
+		File benchFile = new File(db_loc + bench_name);
+		String failure = copyDatabase(context, benchFile);
+		
+		if(failure != null) {
+			return "Benchmark failed: " + failure;
+		}
+		
+		try {
+			ArrayList<String> nids = new ArrayList<String>();
+			int eID = loadSample(benchFile, votes, nids);
+			
+			if(nids.isEmpty() || eID < 0) {
+				return "Benchmark skipped: no users or entities in the database.";
+			}
+			
+			long[] before = runUncached(benchFile, eID, nids);
+			long[] after = runCached(benchFile, eID, nids);
+			long[] atomic = runTransactional(context, eID, nids);
+			
+			return "Per-vote commit latency over " + nids.size() + " votes\n"
+					+ "before (open per query): " + summarize(before) + "\n"
+					+ "after (shared connection): " + summarize(after) + "\n"
+					+ "after (single transaction): " + summarize(atomic);
+		} finally {
+			context.deleteDatabase(bench_name);
+		}
+	}
+	
+	// replays a simulated election day against each of the storage presets, for the number of voters
+	// provided. each voter is looked up, as done after the fingerprint is matched, and casts a vote
+	// for a random entity. the report is viewed after every 50 voters. the latency of each voter and
+	// the total time are returned as text, one line per preset. should not be run on the UI thread.
+	
+	public static String runElectionDay(Context context, int voters) {
+		StringBuilder result = new StringBuilder("Election day replay, " + voters + " voters\n");
+		
+		for(DBProfile preset : DBProfile.PRESETS) {
+			File benchFile = new File(db_loc + bench_name);
+			context.deleteDatabase(bench_name);
+			
+			try {
+				String failure = copyDatabase(context, benchFile);
+				if(failure != null) {
+					throw new IOException(failure);
+				}
+				
+				ArrayList<String> nids = new ArrayList<String>();
+				ArrayList<Integer> eIDs = loadEntities(benchFile);
+				loadSample(benchFile, voters, nids);
+				
+				if(nids.isEmpty() || eIDs.isEmpty()) {
+					return "Benchmark skipped: no users or entities in the database.";
+				}
+				
+				DatabaseManager dbManager = new DatabaseManager(context, bench_name, preset);
+				long[] latency = new long[voters];
+				Random rand = new Random(voters);
+				long start = System.nanoTime();
+				
+				try {
+					dbManager.getWritableDatabase().execSQL("UPDATE user SET hasVoted = 0;");
+					
+					for(int i = 0; i < voters; i++) {
+						String nid = nids.get(i % nids.size());
+						long voterStart = System.nanoTime();
+						
+						dbManager.getSpecificUser(nid);
+						dbManager.castVote(eIDs.get(rand.nextInt(eIDs.size())), nid, "DAY" + i);
+						
+						if(i % 50 == 49) {
+							dbManager.getAllEntity();
+						}
+						
+						latency[i] = System.nanoTime() - voterStart;
+					}
+				} finally {
+					dbManager.close();
+				}
+				
+				result.append(preset).append(": ").append(summarize(latency))
+						.append(String.format(", total %.2f s\n", (System.nanoTime() - start) / 1e9));
+			} catch (IOException e) {
+				e.printStackTrace();
+				result.append(preset.getName()).append(": failed - ").append(e.getMessage()).append("\n");
+			} finally {
+				context.deleteDatabase(bench_name);
+			}
+		}
+		
+		return result.toString();
+	}
+	
+	// copies the database to the file provided, on the writer thread, once the write-ahead log has
+	// been moved into the database file, such that the copy holds every vote committed and no vote
+	// is committed while it is made. returns null on success, or the reason of the failure.
+	
+	private static String copyDatabase(final Context context, final File benchFile) {
+		try {
+			return DBExecutor.write(new Callable<String>() {
+				@Override
+				public String call() {
+					try {
+						DatabaseManager.getInstance(context).checkpointLog();
+						FileUtils.copyFile(new File(db_loc + db_name), benchFile);
+						return null;
+					} catch (Exception e) {
+						e.printStackTrace();
+						return "could not copy the database - " + e.getMessage();
+					}
+				}
+			}, null).get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return "interrupted";
+		} catch (ExecutionException e) {
+			e.printStackTrace();
+			return e.getMessage();
+		}
+	}
+	
+	// reads the ids of all the entities in the database
+	
+	private static ArrayList<Integer> loadEntities(File benchFile) {
+		SQLiteDatabase db = SQLiteDatabase.openDatabase(benchFile.getPath(), null, SQLiteDatabase.OPEN_READWRITE);
+		ArrayList<Integer> eIDs = new ArrayList<Integer>();
+		
+		try {
+			Cursor data = db.rawQuery("SELECT e_id FROM entity;", null);
+			while(data.moveToNext()) {
+				eIDs.add(data.getInt(0));
+			}
+			data.close();
+		} finally {
+			db.close();
+		}
+		
+		return eIDs;
+	}
+	
+	// reads the NID values of the voters to commit the votes for, and returns the id of the
+	// first entity, which receives all the votes. returns -1 if there is no entity.
+	
+	private static int loadSample(File benchFile, int votes, ArrayList<String> nids) {
+		SQLiteDatabase db = SQLiteDatabase.openDatabase(benchFile.getPath(), null, SQLiteDatabase.OPEN_READWRITE);
+		int eID = -1;
+		
+		try {
+			Cursor data = db.rawQuery("SELECT n_id FROM user LIMIT " + votes + ";", null);
+			while(data.moveToNext()) {
+				nids.add(data.getString(0));
+			}
+			data.close();
+			
+			data = db.rawQuery("SELECT e_id FROM entity LIMIT 1;", null);
+			if(data.moveToFirst()) {
+				eID = data.getInt(0);
+			}
+			data.close();
+		} finally {
+			db.close();
+		}
+		
+		return eID;
+	}
+	
+	// commits the votes the way they used to be committed - the database is opened, the query is
+	// built by concatenation and run, and the database is closed, once for each update
+	
+	private static long[] runUncached(File benchFile, int eID, ArrayList<String> nids) {
+		long[] latency = new long[nids.size()];
+		int count = 0;
+		
+		for(int i = 0; i < nids.size(); i++) {
+			long start = System.nanoTime();
+			
+			SQLiteDatabase db = SQLiteDatabase.openDatabase(benchFile.getPath(), null, SQLiteDatabase.OPEN_READWRITE);
+			db.execSQL("UPDATE entity SET vote_count = " + (++count) + " WHERE e_id =" + eID + ";");
+			db.close();
+			
+			db = SQLiteDatabase.openDatabase(benchFile.getPath(), null, SQLiteDatabase.OPEN_READWRITE);
+			db.execSQL("UPDATE user SET hasVoted = 1 WHERE n_id = '" + nids.get(i) + "';");
+			db.close();
+			
+			latency[i] = System.nanoTime() - start;
+		}
+		
+		return latency;
+	}
+	
+	// commits the votes as the same two separate updates, over a connection that is kept open on
+	// the copy of the database with the storage settings in use, through statements compiled once
+	// for the run
+	
+	private static long[] runCached(File benchFile, int eID, ArrayList<String> nids) {
+		SQLiteDatabase db = SQLiteDatabase.openDatabase(benchFile.getPath(), null, SQLiteDatabase.OPEN_READWRITE);
+		DBProfile.fromConfig().apply(db);
+		SQLiteStatement voteCountStmt = db.compileStatement("UPDATE entity SET vote_count = vote_count + 1 WHERE e_id = ?;");
+		SQLiteStatement setVotedStmt = db.compileStatement("UPDATE user SET hasVoted = 1 WHERE n_id = ?;");
+		long[] latency = new long[nids.size()];
+		
+		try {
+			for(int i = 0; i < nids.size(); i++) {
+				long start = System.nanoTime();
+				
+				voteCountStmt.bindLong(1, eID);
+				voteCountStmt.executeUpdateDelete();
+				setVotedStmt.bindString(1, nids.get(i));
+				setVotedStmt.executeUpdateDelete();
+				
+				latency[i] = System.nanoTime() - start;
+			}
+		} finally {
+			voteCountStmt.close();
+			setVotedStmt.close();
+			db.close();
+		}
+		
+		return latency;
+	}
+	
+	// casts the votes through the castVote method of a DatabaseManager object opened on the copy
+	// of the database, which commits each vote as a single transaction. the hasVoted flags set by
+	// the previous runs are cleared first, such that the voters are eligible again.
+	
+	private static long[] runTransactional(Context context, int eID, ArrayList<String> nids) {
+		DatabaseManager dbManager = new DatabaseManager(context, bench_name, DBProfile.fromConfig());
+		long[] latency = new long[nids.size()];
+		
+		try {
+			dbManager.getWritableDatabase().execSQL("UPDATE user SET hasVoted = 0;");
+			
+			for(int i = 0; i < nids.size(); i++) {
+				long start = System.nanoTime();
+				dbManager.castVote(eID, nids.get(i), "BENCH" + i);
+				latency[i] = System.nanoTime() - start;
+			}
+		} finally {
+			dbManager.close();
+		}
+		
+		return latency;
+	}
+	
+	// returns the mean, the median and the 95th percentile of the latencies, in milliseconds
+	
+	static String summarize(long[] latency) {
+		long[] sorted = latency.clone();
+		Arrays.sort(sorted);
+		
+		long total = 0;
+		for(long l : sorted) {
+			total += l;
+		}
+		
+		return String.format("mean %.2f ms, p50 %.2f ms, p95 %.2f ms",
+				total / (sorted.length * 1e6),
+				sorted[sorted.length / 2] / 1e6,
+				sorted[Math.min(sorted.length - 1, (sorted.length * 95) / 100)] / 1e6);
+	}
+}
@@ -0,0 +1,112 @@
+/*************************************************************
+ * DBExecutor Class
+ * Runs the work on the database away from the UI thread. The updates are run one at a time, in
+ * the order they are submitted, on a single writer thread, while the queries are run on a small
+ * pool of reader threads, which may run alongside the writer should the database use the
+ * write-ahead log. The work on the fingerprint scanner is run on a thread of its own, such that
+ * a scan, which waits on the voter, does not hold up the database. The result of each task is
+ * passed back to the UI thread, to the callback provided, and can be waited for through the
+ * Future object returned as well.
+ * A part of the SmartVote application, developed by ZedApps.
+ *
+ * @author Shamah M Zoha
+ * @email shamah1992@gmail.com
+ * @github bitbucket.org/smzoha/
+ ************************************************************/
+
+package com.zedapps.smartvote;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import android.os.Handler;
+import android.os.Looper;
+
+public class DBExecutor {
+	
+	// the interface of the objects that the result of a task is passed to, on the UI thread.
+	// should the task fail, null is passed.
+	
+	public interface Callback<T> {
+		void onResult(T result);
+	}
+	
+	private static final int READERS = 2; // the number of threads that the queries are run on
+	
+	private static final ExecutorService writer = Executors.newSingleThreadExecutor(threads("SVDBWriter"));
+	private static final ExecutorService readers = Executors.newFixedThreadPool(READERS, threads("SVDBReader"));
+	private static final ExecutorService scanner = Executors.newSingleThreadExecutor(threads("SVScanner"));
+	private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+	
+	// submits a query, which is run on one of the reader threads. the queries are not ordered
+	// against the updates, hence a query submitted after an update may not see it.
+	
+	public static <T> Future<T> read(Callable<T> task, Callback<T> callback) {
+		return submit(readers, task, callback);
+	}
+	
+	// submits an update, which is run on the writer thread once the updates submitted before it
+	// have been run
+	
+	public static <T> Future<T> write(Callable<T> task, Callback<T> callback) {
+		return submit(writer, task, callback);
+	}
+	
+	// submits work on the fingerprint scanner, which is run on the scanner thread once the work
+	// submitted before it has been run, since the scanner handles one command at a time
+	
+	public static <T> Future<T> scan(Callable<T> task, Callback<T> callback) {
+		return submit(scanner, task, callback);
+	}
+	
+	// runs the task on the executor provided, and posts the result to the callback, if any,
+	// on the UI thread
+	
+	private static <T> Future<T> submit(ExecutorService executor, final Callable<T> task, final Callback<T> callback) {
+		return executor.submit(new Callable<T>() {
+			@Override
+			public T call() throws Exception {
+				T result = null;
+				
+				try {
+					result = task.call();
+				} catch(Exception e) {
+					e.printStackTrace();
+				}
+				
+				if(callback != null) {
+					final T delivered = result;
+					
+					mainHandler.post(new Runnable() {
+						@Override
+						public void run() {
+							callback.onResult(delivered);
+						}
+					});
+				}
+				
+				return result;
+			}
+		});
+	}
+	
+	// returns a factory of the threads of an executor, which bear the name provided and run below
+	// the priority of the UI thread
+	
+	private static ThreadFactory threads(final String name) {
+		return new ThreadFactory() {
+			private final AtomicInteger count = new AtomicInteger();
+			
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, name + "-" + count.incrementAndGet());
+				thread.setPriority(Thread.NORM_PRIORITY - 1);
+				return thread;
+			}
+		};
+	}
+}
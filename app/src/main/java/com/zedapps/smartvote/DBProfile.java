@@ -0,0 +1,149 @@
+/*************************************************************
+ * DBProfile Class
+ * Defines the storage settings that the database is opened with - the journal mode, the
+ * synchronous level, the size of the memory map, the size of the page cache and the location
+ * of the temporary tables. A set of named presets is provided, which trade the durability of
+ * the votes against the latency of committing them. The preset, as well as each setting, can
+ * be chosen through the svconfig.properties file.
+ * A part of the SmartVote application, developed by ZedApps.
+ *
+ * @author Shamah M Zoha
+ * @email shamah1992@gmail.com
+ * @github bitbucket.org/smzoha/
+ ************************************************************/
+
+package com.zedapps.smartvote;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+public class DBProfile {
+	
+	// the presets, from the most durable to the fastest. the default preset applies none of the
+	// settings, keeping those of the platform (rollback journal, synchronous FULL).
+	
+	public static final DBProfile DEFAULT = new DBProfile("default", false, null, -1, 0, null);
+	
+	// write-ahead log with a sync on every commit - a vote is never lost once committed
+	
+	public static final DBProfile DURABLE = new DBProfile("durable", true, "FULL", 0, -2048, "MEMORY");
+	
+	// write-ahead log synced at checkpoints - the last votes may be lost on power loss, but the
+	// database is never corrupted
+	
+	public static final DBProfile BALANCED = new DBProfile("balanced", true, "NORMAL", 64L << 20, -8192, "MEMORY");
+	
+	// no syncs at all - only for benchmarks and mock elections, since the votes may be lost or
+	// the database corrupted on power loss
+	
+	public static final DBProfile FAST = new DBProfile("fast", true, "OFF", 256L << 20, -16384, "MEMORY");
+	
+	public static final DBProfile[] PRESETS = {DEFAULT, DURABLE, BALANCED, FAST};
+	
+	private final String name;			// the name of the profile
+	private final boolean wal;			// whether the write-ahead log is used as the journal
+	private final String synchronous;	// the synchronous level, or null to keep the default
+	private final long mmapSize;		// the size of the memory map in bytes, or -1 to keep the default
+	private final int cacheSize;		// the size of the page cache (negative values in KiB), or 0 to keep the default
+	private final String tempStore;		// the location of the temporary tables, or null to keep the default
+	
+	// constructor that takes in the name and the settings of the profile
+	
+	public DBProfile(String name, boolean wal, String synchronous, long mmapSize, int cacheSize, String tempStore) {
+		this.name = name;
+		this.wal = wal;
+		this.synchronous = synchronous;
+		this.mmapSize = mmapSize;
+		this.cacheSize = cacheSize;
+		this.tempStore = tempStore;
+	}
+	
+	/******************************************************
+	 * 				GETTER & SETTER METHODS				  *
+	 ******************************************************/
+	
+	public String getName() {
+		return name;
+	}
+	
+	public boolean isWAL() {
+		return wal;
+	}
+	
+	/******************************************************
+	 * 			END OF GETTER & SETTER METHODS			  *
+	 ******************************************************/
+	
+	// returns the preset bearing the name provided, or the default preset if there is none
+	
+	public static DBProfile forName(String name) {
+		for(DBProfile preset : PRESETS) {
+			if(preset.name.equalsIgnoreCase(name)) {
+				return preset;
+			}
+		}
+		
+		return DEFAULT;
+	}
+	
+	// returns the profile chosen in the settings - the preset named by db.profile, with each of
+	// its settings overridden by the db.* settings that are present
+	
+	public static DBProfile fromConfig() {
+		DBProfile preset = forName(SVConfig.get(SVConfig.DB_PROFILE, DEFAULT.name));
+		
+		return new DBProfile(preset.name,
+				SVConfig.getBoolean(SVConfig.DB_WAL, preset.wal),
+				SVConfig.get(SVConfig.DB_SYNCHRONOUS, preset.synchronous),
+				SVConfig.getInt(SVConfig.DB_MMAP_SIZE, (int) Math.min(preset.mmapSize, Integer.MAX_VALUE)),
+				SVConfig.getInt(SVConfig.DB_CACHE_SIZE, preset.cacheSize),
+				SVConfig.get(SVConfig.DB_TEMP_STORE, preset.tempStore));
+	}
+	
+	// applies the profile to the database provided. called as the database is configured, before
+	// it is used. the write-ahead log only applies to the file, while the other settings apply to
+	// the connection that the updates are run on. the memory map is ignored by the versions of
+	// SQLite older than 3.7.17, i.e. before Android 5.0.
+	
+	public void apply(SQLiteDatabase db) {
+		if(wal) {
+			db.enableWriteAheadLogging();
+		} else {
+			db.disableWriteAheadLogging();
+		}
+		
+		if(synchronous != null) {
+			pragma(db, "synchronous", synchronous);
+		}
+		
+		if(mmapSize >= 0) {
+			pragma(db, "mmap_size", Long.toString(mmapSize));
+		}
+		
+		if(cacheSize != 0) {
+			pragma(db, "cache_size", Integer.toString(cacheSize));
+		}
+		
+		if(tempStore != null) {
+			pragma(db, "temp_store", tempStore);
+		}
+	}
+	
+	// sets the pragma provided. a query is used rather than execSQL, since some of the pragmas
+	// return the value that has been set.
+	
+	private static void pragma(SQLiteDatabase db, String pragma, String value) {
+		Cursor result = db.rawQuery("PRAGMA " + pragma + " = " + value + ";", null);
+		result.moveToFirst();
+		result.close();
+	}
+	
+	// returns the profile as text, e.g. for the benchmark results
+	
+	@Override
+	public String toString() {
+		return name + " (" + (wal ? "WAL" : "rollback journal") + ", synchronous " + (synchronous == null ? "default" : synchronous)
+				+ ", mmap " + (mmapSize < 0 ? "default" : (mmapSize >> 20) + " MiB")
+				+ ", cache " + (cacheSize == 0 ? "default" : Integer.toString(cacheSize)) + ")";
+	}
+}
@@ -1,6 +1,8 @@
 /*************************************************************
  * DatabaseManager Class
  * Bridges the application with the database containing the user and the entity information.
+ * A single instance is shared by the application, which keeps the connection with the database
+ * open, along with the compiled statements of the frequent updates.
  * A part of the SmartVote application, developed by ZedApps.
  * 
  * @author Shamah M Zoha
@@ -12,19 +14,24 @@ package com.zedapps.smartvote;
 
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
-import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
+import android.database.sqlite.SQLiteConstraintException;
 import android.database.sqlite.SQLiteOpenHelper;
 import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
 import android.os.Environment;
+import android.util.LruCache;
 
 import com.zedapps.smartvote.modules.Entity;
 import com.zedapps.smartvote.modules.User;
 
 public class DatabaseManager extends SQLiteOpenHelper {
-
+	
 	// initializing constants which contains the location of the database file
 	// and the database file name.
 	
@@ -32,49 +39,269 @@ public class DatabaseManager extends SQLiteOpenHelper {
 			"/data/com.zedapps.smartvote/databases/";
 	private static String db_name = "svdatabase.db";
 	
+	// the version of the schema, which the database is upgraded to as it is opened
+	
+	private static final int DB_VERSION = 5;
+	
+	// the frequent lookups and updates whose query plans are checked as the database is opened,
+	// each with a single parameter - the NID value or the id of the entity
+	
+	private static final String[][] CHECKED_QUERIES = {
+		{"user lookup", "SELECT * FROM user WHERE n_id = ?;"},
+		{"vote flag", "UPDATE user SET hasVoted = 1 WHERE n_id = ? AND hasVoted = 0;"},
+		{"user removal", "DELETE FROM user WHERE n_id = ?;"},
+		{"vote tally", "UPDATE entity SET vote_count = vote_count + 1 WHERE e_id = ?;"}
+	};
+	
+	// constants defining the outcome of casting a vote
+	
+	public static final int VOTE_CAST = 0;			// the vote has been committed
+	public static final int VOTE_NOT_ELIGIBLE = 1;	// the voter does not exist or has voted already
+	public static final int VOTE_DUPLICATE_SID = 2;	// the session ID has been used already
+	public static final int VOTE_FAILED = 3;		// the vote could not be committed
+	
+	// the instance shared by the application
+	
+	private static DatabaseManager instance;
+	
 	// creating the SQLiteDatabase object, as well as a Context object to hold
 	// the application context passed to it.
 	
 	SQLiteDatabase svdb;
 	Context appContext;
 	
+	private final DBProfile profile; // the storage settings that the database is opened with
+	
+	// the users looked up last, by their NID value, such that the administrators and the voters
+	// scanned again are found without querying the database. a user is removed from the cache
+	// whenever their tuple is changed. the version is incremented on each removal, such that a
+	// lookup running alongside the change does not cache the tuple as it was before.
+	
+	private final LruCache<String, User> userCache;
+	private final AtomicInteger cacheVersion = new AtomicInteger();
+	
+	// the checked queries which scan the whole table, as found when the database was last opened
+	
+	private final ArrayList<String> planWarnings = new ArrayList<String>();
+	
+	// the compiled statements of the frequent updates, which are compiled on first use and
+	// kept for as long as the connection is open
+	
+	private SQLiteStatement insertVoterStmt;
+	private SQLiteStatement bulkInsertStmt;
+	private SQLiteStatement deleteUserStmt;
+	private SQLiteStatement castVoterStmt;
+	private SQLiteStatement castTallyStmt;
+	private SQLiteStatement castSIDStmt;
+	
 	// constructor with application context passed in. the super constructor is called
-	// to create the object, with the database file name being provided.
+	// to create the object, with the database file name being provided. the storage
+	// settings are the ones chosen in the settings file.
 	
 	public DatabaseManager(Context context) {
-		super(context, db_name, null, 1);
+		this(context, db_name, DBProfile.fromConfig());
+	}
+	
+	// constructor which takes in the name of the database file in the database directory and
+	// the storage settings, e.g. for the copy of the database used by the DBBenchmark class
+	
+	DatabaseManager(Context context, String name, DBProfile profile) {
+		super(context, name, null, DB_VERSION);
 		appContext = context;
+		this.profile = profile;
+		userCache = new LruCache<String, User>(Math.max(1, SVConfig.getInt(SVConfig.USER_CACHE_SIZE, 512)));
 	}
-
-	// the override methods are kept empty, since the application do not need database
-	// to be created when the file does not exist, or is updated.
+	
+	// returns the instance shared by the application, which is created on first use
+	
+	public static synchronized DatabaseManager getInstance(Context context) {
+		if(instance == null) {
+			instance = new DatabaseManager(context.getApplicationContext());
+		}
+		
+		return instance;
+	}
+	
+	// closes the connection of the shared instance, if there is one, and discards it. called
+	// whenever the database file is replaced or removed, such that a new instance is created on
+	// next use, opening the new file with the settings shipped along with it.
+	
+	public static synchronized void closeInstance() {
+		if(instance != null) {
+			instance.close();
+			instance = null;
+		}
+	}
+	
+	// the storage settings are applied as the database is configured, before it is used
 	
 	@Override
-	public void onCreate(SQLiteDatabase db) {}
-
+	public void onConfigure(SQLiteDatabase db) {
+		profile.apply(db);
+	}
+	
+	// the database is created with the tables of the application, should the file not exist or
+	// not hold them, and then brought up to the latest version. the database files shipped carry
+	// version 0, and so pass through here as well - the tables they hold are left as they are.
+	
+	@Override
+	public void onCreate(SQLiteDatabase db) {
+		db.execSQL("CREATE TABLE IF NOT EXISTS user (n_id TEXT PRIMARY KEY, first_name TEXT, middle_name TEXT, "
+				+ "last_name TEXT, address TEXT, dob INTEGER, father_name TEXT, mother_name TEXT, "
+				+ "hasVoted INTEGER DEFAULT 0, isVoter INTEGER DEFAULT 0, isAdmin INTEGER DEFAULT 0, "
+				+ "isSAdmin INTEGER DEFAULT 0);");
+		db.execSQL("CREATE TABLE IF NOT EXISTS entity (e_id INTEGER PRIMARY KEY, e_name TEXT, c_name TEXT, "
+				+ "e_sym TEXT, vote_count INTEGER DEFAULT 0);");
+		
+		onUpgrade(db, 1, DB_VERSION);
+	}
+	
+	// the database is upgraded one version at a time, such that a file of any older version goes
+	// through each of the migrations in turn
+	
+	@Override
+	public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+		for(int version = oldVersion + 1; version <= newVersion; version++) {
+			migrate(db, version);
+		}
+	}
+	
+	// a database file of a newer version is opened as it is, rather than failing, since the
+	// migrations only ever add tables and indexes
+	
+	@Override
+	public void onDowngrade(SQLiteDatabase db, int oldVersion, int newVersion) {}
+	
+	// runs the migration which brings the database up to the version provided.
+	// version 2 adds the table holding the session IDs, held on their own, without the NID value
+	// or the entity, to keep the ballot secret, as well as the indexes of the frequent lookups.
+	// version 3 adds the table holding the position of the vote journal that the vote counts of
+	// the entity table were last checkpointed at. version 4 adds the table holding the vote counts
+	// that the entity table held before the vote journal was started, which the votes journaled
+	// are recounted on top of. version 5 makes the index of the NID value unique, such that a user
+	// cannot be inserted twice even where the file does not declare it as the primary key.
+	
+	private static void migrate(SQLiteDatabase db, int version) {
+		switch(version) {
+		case 2:
+			db.execSQL("CREATE TABLE IF NOT EXISTS session_id (sid TEXT PRIMARY KEY);");
+			removeDuplicateUsers(db);
+			createIndexes(db);
+			break;
+		case 3:
+			db.execSQL("CREATE TABLE IF NOT EXISTS tally_checkpoint (id INTEGER PRIMARY KEY, seq INTEGER);");
+			break;
+		case 4:
+			db.execSQL("CREATE TABLE IF NOT EXISTS tally_base (e_id INTEGER PRIMARY KEY, base INTEGER);");
+			break;
+		case 5:
+			removeDuplicateUsers(db);
+			db.execSQL("DROP INDEX IF EXISTS user_nid_idx;");
+			createIndexes(db);
+			break;
+		}
+	}
+	
+	// removes the users whose NID value is held by an earlier row as well, such that the index of
+	// the NID value can be made unique. should any of the rows have voted, the row kept is marked
+	// as such, so that the voter cannot vote again.
+	
+	private static void removeDuplicateUsers(SQLiteDatabase db) {
+		db.execSQL("UPDATE user SET hasVoted = 1 WHERE hasVoted = 0 AND n_id IN "
+				+ "(SELECT n_id FROM user WHERE hasVoted = 1);");
+		db.execSQL("DELETE FROM user WHERE rowid NOT IN (SELECT MIN(rowid) FROM user GROUP BY n_id);");
+	}
+	
+	// creates the indexes of the user table - the NID value, which every lookup and update of a
+	// user is made by, the hasVoted flag and the role flags - and of the entity table, should they
+	// not exist. the database files shipped may not declare the keys as primary keys, hence the
+	// index of the NID value is unique, which the inserts that skip a known NID value rely on.
+	
+	private static void createIndexes(SQLiteDatabase db) {
+		db.execSQL("CREATE UNIQUE INDEX IF NOT EXISTS user_nid_idx ON user (n_id);");
+		db.execSQL("CREATE INDEX IF NOT EXISTS user_voted_idx ON user (hasVoted);");
+		db.execSQL("CREATE INDEX IF NOT EXISTS user_role_idx ON user (isAdmin, isSAdmin, isVoter);");
+		db.execSQL("CREATE INDEX IF NOT EXISTS entity_id_idx ON entity (e_id);");
+	}
+	
+	// as the database is opened, the query plans of the frequent lookups and updates are checked.
+	// should any of them scan the whole table, the indexes are created again and the plans checked
+	// once more - the lookups still scanning are then kept, to be shown on the report.
+	
 	@Override
-	public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {}
+	public void onOpen(SQLiteDatabase db) {
+		if(!checkQueryPlans(db)) {
+			createIndexes(db);
+			checkQueryPlans(db);
+		}
+	}
+	
+	// explains the query plan of each of the checked queries, and records those which scan the
+	// whole table rather than searching an index. returns true if none does.
 	
-	// the connection with the database file is opened. the file name, along with
-	// the directory, is provided, along with the constant that allows for read/
-	// write access.
+	private boolean checkQueryPlans(SQLiteDatabase db) {
+		planWarnings.clear();
+		
+		for(String[] query : CHECKED_QUERIES) {
+			try {
+				Cursor plan = db.rawQuery("EXPLAIN QUERY PLAN " + query[1], new String[]{"0"});
+				
+				while(plan.moveToNext()) {
+					if(plan.getString(plan.getColumnCount() - 1).startsWith("SCAN")) {
+						planWarnings.add(query[0]);
+						break;
+					}
+				}
+				
+				plan.close();
+			} catch(Exception e) {
+				e.printStackTrace();
+				planWarnings.add(query[0]);
+			}
+		}
+		
+		return planWarnings.isEmpty();
+	}
+	
+	// returns the result of the query plan check, e.g. for the report
+	
+	public String getQueryPlanStatus() {
+		getDatabase();
+		
+		if(planWarnings.isEmpty()) {
+			return "Database schema v" + DB_VERSION + " - all lookups use an index";
+		}
+		
+		return "Database schema v" + DB_VERSION + " - full table scan in: " + planWarnings;
+	}
+	
+	// the connection with the database file is opened, unless it is open already.
+	// the connection is kept open until the close method is called, rather than being
+	// opened and closed by each query.
 	
 	public void openDatabase() throws SQLException {
-		svdb = SQLiteDatabase.openDatabase(db_loc+db_name, null, 
-				SQLiteDatabase.OPEN_READWRITE);
+		getDatabase();
+	}
+	
+	// returns the open connection with the database, opening it if needed
+	
+	private synchronized SQLiteDatabase getDatabase() {
+		if(svdb == null || !svdb.isOpen()) {
+			svdb = this.getWritableDatabase();
+		}
+		
+		return svdb;
 	}
 	
 	// method to obtain information of all the user stored in the database.
-	// a temporary object for the database is created, which is used to store
-	// a copy of the database, to ensure that the original object is not
-	// overwritten. next, an array list is created to hold User objects.
+	// the open connection with the database is obtained. next, an array list
+	// is created to hold User objects.
 	// the query is then executed and the data is stored in a Cursor object.
 	// this Cursor object is used to retrieve data from the result of the query,
 	// and the information is stored in the list. finally, the list is returned.
-	// finally, the temporary database object is closed to avoid memory leakage.
 	
 	public ArrayList<User> getAllUser() {
-		SQLiteDatabase tmpDB = this.getWritableDatabase();
+		SQLiteDatabase tmpDB = getDatabase();
 		ArrayList <User> allUsers = new ArrayList<User>();
 		Cursor data;
 		
@@ -107,24 +334,103 @@ public class DatabaseManager extends SQLiteOpenHelper {
 			e.printStackTrace();
 		}
 		
-		tmpDB.close();
-		
 		return allUsers;
 	}
 	
 	
+	// method to obtain the number of users stored in the database
+	
+	public int getUserCount() {
+		Cursor data = getDatabase().rawQuery("SELECT COUNT(*) FROM user;", null);
+		int count = data.moveToFirst() ? data.getInt(0) : 0;
+		data.close();
+		
+		return count;
+	}
+	
+	// method to obtain a page of the NID values of the users, in the order of the NID values,
+	// following the NID value provided - the last one of the previous page, or an empty string for
+	// the first page. only the NID column is queried, and the page is sought on the index on it,
+	// rather than skipping the rows of the pages before it.
+	
+	public ArrayList<String> getUserNIDs(String after, int limit) {
+		ArrayList<String> nids = new ArrayList<String>(limit);
+		Cursor data = getDatabase().rawQuery("SELECT n_id FROM user WHERE n_id > ? ORDER BY n_id LIMIT ?;",
+				new String[]{after, Integer.toString(limit)});
+		
+		while(data.moveToNext()) {
+			nids.add(data.getString(0));
+		}
+		data.close();
+		
+		return nids;
+	}
+	
 	// method to obtain information of one specific user stored in the database.
-	// a temporary object for the database is created, which is used to store
-	// a copy of the database, to ensure that the original object is not
-	// overwritten. next, a single User object is created to hold User data.
+	// the open connection with the database is obtained. next, a single User
+	// object is created to hold User data.
 	// the query is then executed and the data is stored in a Cursor object.
 	// the Cursor object is then checked to find if it holds a single information
 	// or not. if there are multiple data, a 'null' object is returned. otherwise,
-	// the valid user information is passed as the User object.
-	// finally, the temporary database object is closed to avoid memory leakage.
+	// the valid user information is passed as the User object. since the query
+	// is run on the same connection each time, its compiled form is reused by SQLite.
+	// the user is returned from the cache if present, and cached otherwise.
 	
 	public User getSpecificUser(String NID_VAL) {
-		SQLiteDatabase tmpDB = this.getWritableDatabase();
+		User contextUser = userCache.get(NID_VAL);
+		if(contextUser != null) {
+			return contextUser;
+		}
+		
+		int version = cacheVersion.get();
+		contextUser = queryUser(NID_VAL);
+		
+		if(contextUser != null && version == cacheVersion.get()) {
+			userCache.put(NID_VAL, contextUser);
+		}
+		
+		return contextUser;
+	}
+	
+	// loads the users bearing the NID values provided into the cache, in the order provided,
+	// until the cache is full, e.g. in the order that the users are searched for at identification.
+	// the lookups made while loading are not counted as hits or misses.
+	
+	public void warmUserCache(List<String> NID_VALS) {
+		int limit = Math.min(NID_VALS.size(), userCache.maxSize());
+		
+		for(int i = 0; i < limit; i++) {
+			int version = cacheVersion.get();
+			User user = queryUser(NID_VALS.get(i));
+			
+			if(user != null && version == cacheVersion.get()) {
+				userCache.put(user.getnID(), user);
+			}
+		}
+	}
+	
+	// removes the user bearing the NID value provided from the cache
+	
+	private void invalidateUser(String NID_VAL) {
+		cacheVersion.incrementAndGet();
+		userCache.remove(NID_VAL);
+	}
+	
+	// returns the hit and miss counts of the user cache, as a line of text
+	
+	public String getUserCacheStats() {
+		int hits = userCache.hitCount();
+		int misses = userCache.missCount();
+		int rate = hits + misses == 0 ? 0 : (hits * 100) / (hits + misses);
+		
+		return "User cache - hits: " + hits + ", misses: " + misses + " (" + rate + "%), "
+				+ userCache.size() + " of " + userCache.maxSize() + " users held";
+	}
+	
+	// queries the tuple of the user bearing the NID value provided, or returns null if there is none
+	
+	private User queryUser(String NID_VAL) {
+		SQLiteDatabase tmpDB = getDatabase();
 		Cursor data;
 		User contextUser = null;
 		
@@ -149,8 +455,6 @@ public class DatabaseManager extends SQLiteOpenHelper {
 						data.getInt(9),
 						data.getInt(10),
 						data.getInt(11));
-			} else {
-				return null;
 			}
 			
 			data.close();
@@ -158,72 +462,292 @@ public class DatabaseManager extends SQLiteOpenHelper {
 			e.printStackTrace();
 		}
 		
-		tmpDB.close();
-		
 		return contextUser;
 	}
 	
+	// method to load the users that the live fingerprint impression is to be matched against.
+	// only the NID value and the flags of the users are queried, which are then passed on to the
+	// CandidateSet object provided, where the users are sorted into the order of search.
+	
+	public void loadCandidates(CandidateSet candidates) {
+		SQLiteDatabase tmpDB = getDatabase();
+		Cursor data;
+		
+		try {
+			data = tmpDB.rawQuery("SELECT n_id, hasVoted, isVoter, isAdmin, isSAdmin FROM user;", null);
+			if(data == null) {
+				return;
+			}
+			
+			data.moveToFirst();
+			
+			while(!data.isAfterLast()) {
+				candidates.add(data.getString(0),
+						data.getInt(1) == 1,
+						data.getInt(2) == 1,
+						data.getInt(3) == 1 || data.getInt(4) == 1);
+				data.moveToNext();
+			}
+			
+			data.close();
+		} catch(Exception e) {
+			e.printStackTrace();
+		}
+	}
+	
 	// method to insert voter information in the database.
 	// a string array with all the data of the tuple is passed in.
-	// a temporary database is created to hold the copy of the original object.
-	// a ContentValues object is created to hold the information passed,
-	// before an insert operation is performed. the status flags are
-	// hard-coded to ensure that the data of the user inserted is a voter.
-	// finally, the temporary database object is closed to avoid memory leakage.
-	
-	public void insertVoter(String [] data) {
-		SQLiteDatabase tmpDB = this.getWritableDatabase();
-		
-		ContentValues voterValues = new ContentValues();
-		voterValues.put("n_ID", data[0]);
-		voterValues.put("first_name", data[1]);
-		voterValues.put("middle_name", data[2]);
-		voterValues.put("last_name", data[3]);
-		voterValues.put("address", data[4]);
-		voterValues.put("dob", Long.parseLong(data[5]));
-		voterValues.put("father_name", data[6]);
-		voterValues.put("mother_name", data[7]);
-		voterValues.put("hasVoted", 0);
-		voterValues.put("isVoter", 1);
-		voterValues.put("isAdmin", 0);
-		voterValues.put("isSAdmin", 0);
-		
-		tmpDB.insert("user", null, voterValues);
-		tmpDB.close();
+	// the values are bound to the compiled insert statement, before it is executed.
+	// the status flags are hard-coded to ensure that the data of the user inserted is a voter.
+	// returns false if a user bearing the NID value exists already.
+	
+	public synchronized boolean insertVoter(String [] data) {
+		if(insertVoterStmt == null) {
+			insertVoterStmt = getDatabase().compileStatement("INSERT INTO user (n_id, first_name, middle_name, "
+					+ "last_name, address, dob, father_name, mother_name, hasVoted, isVoter, isAdmin, isSAdmin) "
+					+ "VALUES (?, ?, ?, ?, ?, ?, ?, ?, 0, 1, 0, 0);");
+		}
+		
+		insertVoterStmt.clearBindings();
+		insertVoterStmt.bindString(1, data[0]);
+		insertVoterStmt.bindString(2, data[1]);
+		insertVoterStmt.bindString(3, data[2]);
+		insertVoterStmt.bindString(4, data[3]);
+		insertVoterStmt.bindString(5, data[4]);
+		insertVoterStmt.bindLong(6, Long.parseLong(data[5]));
+		insertVoterStmt.bindString(7, data[6]);
+		insertVoterStmt.bindString(8, data[7]);
+		
+		try {
+			insertVoterStmt.executeInsert();
+			return true;
+		} catch(SQLiteConstraintException e) {
+			return false;
+		} finally {
+			invalidateUser(data[0]);
+		}
 	}
 	
+	// method to insert a batch of users in the database, as a single transaction, e.g. for a
+	// bulk import. each string array holds the data of the tuple, as for the insertVoter method,
+	// followed by the isVoter, isAdmin and isSAdmin flags. the users whose NID value exists
+	// already are skipped. returns the NID values of the users inserted.
+	
+	public synchronized ArrayList<String> insertUsers(ArrayList<String[]> batch) {
+		SQLiteDatabase tmpDB = getDatabase();
+		
+		if(bulkInsertStmt == null) {
+			bulkInsertStmt = tmpDB.compileStatement("INSERT OR IGNORE INTO user (n_id, first_name, middle_name, "
+					+ "last_name, address, dob, father_name, mother_name, hasVoted, isVoter, isAdmin, isSAdmin) "
+					+ "VALUES (?, ?, ?, ?, ?, ?, ?, ?, 0, ?, ?, ?);");
+		}
+		
+		ArrayList<String> inserted = new ArrayList<String>(batch.size());
+		tmpDB.beginTransaction();
+		
+		try {
+			for(String[] data : batch) {
+				bulkInsertStmt.clearBindings();
+				for(int i = 0; i < 8; i++) {
+					if(i == 5) {
+						bulkInsertStmt.bindLong(6, Long.parseLong(data[5]));
+					} else {
+						bulkInsertStmt.bindString(i + 1, data[i]);
+					}
+				}
+				bulkInsertStmt.bindLong(9, Long.parseLong(data[8]));
+				bulkInsertStmt.bindLong(10, Long.parseLong(data[9]));
+				bulkInsertStmt.bindLong(11, Long.parseLong(data[10]));
+				
+				if(bulkInsertStmt.executeInsert() != -1) {
+					inserted.add(data[0]);
+					invalidateUser(data[0]);
+				}
+			}
+			
+			tmpDB.setTransactionSuccessful();
+		} finally {
+			tmpDB.endTransaction();
+		}
+		
+		return inserted;
+	}
 	
 	// method to delete a tuple of data from the user table.
-	// the NID value is passed to execute the query.
+	// the NID value is bound to the compiled delete statement.
 	// based on the NID value, the data of the user is removed from the database.
 	
-	public void deleteSpecificUser(String NID_VAL) {
-		SQLiteDatabase tmpDB = this.getWritableDatabase();
-		tmpDB.delete("user", "n_id = " + NID_VAL, null);
-		tmpDB.close();
+	public synchronized void deleteSpecificUser(String NID_VAL) {
+		if(deleteUserStmt == null) {
+			deleteUserStmt = getDatabase().compileStatement("DELETE FROM user WHERE n_id = ?;");
+		}
+		
+		deleteUserStmt.bindString(1, NID_VAL);
+		deleteUserStmt.executeUpdateDelete();
+		invalidateUser(NID_VAL);
 	}
 	
-	// method to set hasVoted flag to true for a specific user.
-	// the NID value is passed to execute the query.
-	// based on the NID value, the flag is set to 1.
+	// method to cast the vote of a voter as a single transaction - the vote count of the entity is
+	// incremented, the hasVoted flag of the voter is set, and the session ID printed on the ballot
+	// is stored. either all three are committed, or none is, such that the tally never counts a voter
+	// who is still eligible to vote. the flag is only set if it was not set already, and the session
+	// ID is unique, in which case the transaction is rolled back and the outcome returned.
 	
-	public void sethasVotedForUser(String NID_VAL) {
-		SQLiteDatabase tmpDB = this.getWritableDatabase();
-		tmpDB.execSQL("UPDATE user SET hasVoted = 1 WHERE n_id = "+NID_VAL+";");
-		tmpDB.close();
+	public int castVote(int eID, String NID_VAL, String sessionID) {
+		return castVote(eID, NID_VAL, sessionID, null);
+	}
+	
+	// casts the vote as above. should a TallyEngine object be provided, the vote is appended to its
+	// journal rather than incrementing the vote count of the entity table, before the transaction is
+	// committed. the vote count is then written at the next checkpoint of the tally.
+	
+	public synchronized int castVote(int eID, String NID_VAL, String sessionID, TallyEngine tally) {
+		SQLiteDatabase tmpDB = getDatabase();
+		
+		if(castVoterStmt == null) {
+			castVoterStmt = tmpDB.compileStatement("UPDATE user SET hasVoted = 1 WHERE n_id = ? AND hasVoted = 0;");
+			castTallyStmt = tmpDB.compileStatement("UPDATE entity SET vote_count = vote_count + 1 WHERE e_id = ?;");
+			castSIDStmt = tmpDB.compileStatement("INSERT INTO session_id (sid) VALUES (?);");
+		}
+		
+		tmpDB.beginTransaction();
+		
+		try {
+			castVoterStmt.bindString(1, NID_VAL);
+			if(castVoterStmt.executeUpdateDelete() != 1) {
+				return VOTE_NOT_ELIGIBLE;
+			}
+			
+			if(tally == null) {
+				castTallyStmt.bindLong(1, eID);
+				if(castTallyStmt.executeUpdateDelete() != 1) {
+					return VOTE_FAILED;
+				}
+			} else if(!tally.hasEntity(eID)) {
+				return VOTE_FAILED;
+			}
+			
+			castSIDStmt.bindString(1, sessionID);
+			if(castSIDStmt.executeInsert() == -1) {
+				return VOTE_DUPLICATE_SID;
+			}
+			
+			if(tally != null) {
+				tally.appendJournal(eID, sessionID);
+			}
+			
+			tmpDB.setTransactionSuccessful();
+			return VOTE_CAST;
+		} catch(SQLiteConstraintException e) {
+			return VOTE_DUPLICATE_SID;
+		} catch(Exception e) {
+			e.printStackTrace();
+			return VOTE_FAILED;
+		} finally {
+			tmpDB.endTransaction();
+			invalidateUser(NID_VAL);
+		}
+	}
+	
+	// checks if the session ID provided has been stored, i.e. if the vote it was printed for
+	// has been committed
+	
+	public boolean hasSessionID(String sessionID) {
+		Cursor data = getDatabase().rawQuery("SELECT 1 FROM session_id WHERE sid = ?;", new String[]{sessionID});
+		boolean found = data.moveToFirst();
+		data.close();
+		
+		return found;
+	}
+	
+	// moves the data held in the write-ahead log into the database file and truncates the log, such
+	// that the database file alone holds every update committed, e.g. to be copied. should be run
+	// on the writer thread, such that no update is committed until the file has been copied.
+	
+	public void checkpointLog() {
+		Cursor result = getDatabase().rawQuery("PRAGMA wal_checkpoint(TRUNCATE);", null);
+		result.moveToFirst();
+		result.close();
+	}
+	
+	// returns the position of the vote journal that the vote counts were last checkpointed at,
+	// or 0 if they never were
+	
+	public long getTallyCheckpoint() {
+		Cursor data = getDatabase().rawQuery("SELECT seq FROM tally_checkpoint WHERE id = 0;", null);
+		long seq = data.moveToFirst() ? data.getLong(0) : 0;
+		data.close();
+		
+		return seq;
+	}
+	
+	// returns the vote counts of the entities before the vote journal was started, by e_id, or an
+	// empty map if they have not been stored
+	
+	public HashMap<Integer, Integer> getTallyBase() {
+		HashMap<Integer, Integer> base = new HashMap<Integer, Integer>();
+		Cursor data = getDatabase().rawQuery("SELECT e_id, base FROM tally_base;", null);
+		
+		while(data.moveToNext()) {
+			base.put(data.getInt(0), data.getInt(1));
+		}
+		
+		data.close();
+		return base;
+	}
+	
+	// stores the vote counts of the entities provided as the counts before the vote journal was
+	// started, as a single transaction
+	
+	public synchronized void setTallyBase(int[] eIDs, int[] counts) {
+		SQLiteDatabase tmpDB = getDatabase();
+		
+		tmpDB.beginTransaction();
+		
+		try {
+			for(int i = 0; i < eIDs.length; i++) {
+				tmpDB.execSQL("INSERT OR REPLACE INTO tally_base (e_id, base) VALUES (?, ?);", new Object[]{eIDs[i], counts[i]});
+			}
+			
+			tmpDB.setTransactionSuccessful();
+		} finally {
+			tmpDB.endTransaction();
+		}
+	}
+	
+	// writes the vote counts of the entities provided, along with the position of the vote journal
+	// that they include the votes up to, as a single transaction
+	
+	public synchronized void checkpointTally(int[] eIDs, int[] counts, long seq) {
+		SQLiteDatabase tmpDB = getDatabase();
+		SQLiteStatement countStmt = tmpDB.compileStatement("UPDATE entity SET vote_count = ? WHERE e_id = ?;");
+		
+		tmpDB.beginTransaction();
+		
+		try {
+			for(int i = 0; i < eIDs.length; i++) {
+				countStmt.bindLong(1, counts[i]);
+				countStmt.bindLong(2, eIDs[i]);
+				countStmt.executeUpdateDelete();
+			}
+			
+			tmpDB.execSQL("INSERT OR REPLACE INTO tally_checkpoint (id, seq) VALUES (0, ?);", new Object[]{seq});
+			tmpDB.setTransactionSuccessful();
+		} finally {
+			tmpDB.endTransaction();
+			countStmt.close();
+		}
 	}
 	
 		// method to obtain information of all the entity stored in the database.
-		// a temporary object for the database is created, which is used to store
-		// a copy of the database, to ensure that the original object is not
-		// overwritten. next, an array list is created to hold Entity objects.
+		// the open connection with the database is obtained. next, an array list
+		// is created to hold Entity objects.
 		// the query is then executed and the data is stored in a Cursor object.
 		// this Cursor object is used to retrieve data from the result of the query,
 		// and the information is stored in the list. finally, the list is returned.
-		// finally, the temporary database object is closed to avoid memory leakage.
 	
 	public ArrayList<Entity> getAllEntity() {
-		SQLiteDatabase tmpDB = this.getWritableDatabase();
+		SQLiteDatabase tmpDB = getDatabase();
 		ArrayList <Entity> allEntity = new ArrayList<Entity>();
 		Cursor data;
 		
@@ -249,31 +773,33 @@ public class DatabaseManager extends SQLiteOpenHelper {
 			e.printStackTrace();
 		}
 		
-		tmpDB.close();
-		
 		return allEntity;
 	}
 	
-	// method to increment the vote_count field of a specific entity.
-	// the entity is defined by the id passed, and the previous count is
-	// passed into the method. the query is executed to add '1' to the 
-	// existing count. used after the vote has been casted.
-	
-	public void incrementVoteCount(int id, int vCount) {
-		SQLiteDatabase tmpDB = this.getWritableDatabase();
-		tmpDB.execSQL("UPDATE entity SET vote_count = " + (vCount+1) 
-				+ " WHERE e_id =" + id + ";" );
-		tmpDB.close();
-	}
 	
-	
-	// a synchronized method that closes the database at the end of operation.
+	// a synchronized method that closes the database, along with the compiled statements.
+	// the connection is opened again on next use.
 	
 	public synchronized void close() {
+		SQLiteStatement[] stmts = {insertVoterStmt, bulkInsertStmt, deleteUserStmt, castVoterStmt, castTallyStmt,
+				castSIDStmt};
+		for(SQLiteStatement stmt : stmts) {
+			if(stmt != null) {
+				stmt.close();
+			}
+		}
+		
+		insertVoterStmt = bulkInsertStmt = deleteUserStmt = null;
+		castVoterStmt = castTallyStmt = castSIDStmt = null;
+		
 		if(svdb != null) {
 			svdb.close();
+			svdb = null;
 		}
 		super.close();
+		
+		cacheVersion.incrementAndGet();
+		userCache.evictAll();
 	}
 	
 }
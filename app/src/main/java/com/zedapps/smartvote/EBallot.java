@@ -20,6 +20,7 @@ import android.view.View;
 import android.widget.AdapterView;
 import android.widget.AdapterView.OnItemLongClickListener;
 import android.widget.ListView;
+import android.widget.Toast;
 
 import java.io.File;
 import java.util.ArrayList;
@@ -51,18 +52,33 @@ public class EBallot extends Activity {
 		currentUser = (User) getIntent().getParcelableExtra("usr");
 		
 		// instantiate object of the SVMain class and bind the vManager object to it.
-		// next, initiate the serial connection with the Arduino
+		// next, ensure the serial connection with the Arduino is open
 		
 		svmainObj = new SVMain(getApplicationContext());
 		svmainObj.setVManager(vManager);
 		
 		svmainObj.fpOpen();
 		
-		// obtain all entity from the database, and instantiate the array to hold
-		// the Candidate objects. a loop is run to include the relevant informations
+		// obtain all entity from the database away from the UI thread, and display the ballot
+		// once they have been obtained
+		
+		svmainObj.getEntityDataAsync(new DBExecutor.Callback<ArrayList<Entity>>() {
+			@Override
+			public void onResult(ArrayList<Entity> eData) {
+				if(eData != null) {
+					showBallot(eData);
+				}
+			}
+		});
+	}
+	
+	// displays the ballot for the entities provided
+	
+	private void showBallot(final ArrayList<Entity> eData) {
+		
+		// instantiate the array to hold the Candidate objects. a loop is run to include the relevant informations
 		// of the Entity objects into the array as Candidate objects.
 		
-		final ArrayList<Entity> eData = svmainObj.getEntityData();
 		candidateArr = new Candidate[eData.size()];
 		
 		for(int i = 0; i < eData.size(); i++) {
@@ -113,39 +129,49 @@ public class EBallot extends Activity {
 	}
 	
 	// the confirmVote method finalizes the voting process.
-	// the temporary Entity object is passed in and a session ID is created using
-	// the VoteManager object. this session ID, along with the Entity object is passed
-	// to another method called print, which handles the printing process of the physical
-	// ballot. the vote count is incremented and the voting status is set with the help of
-	// the SVMain object, before the user is redirected to the Thank You activity. the
-	// VoteManager object is passed to maintain concurrency and the serial connection is
-	// closed for smooth transition.
+	// the temporary Entity object is passed in and the vote is cast in the background with the
+	// help of the SVMain object, which increments the vote count, sets the voting status and stores
+	// the session ID created in a single transaction. this session ID, along with the Entity
+	// object is passed to another method called print, which handles the printing process of
+	// the physical ballot, before the user is redirected to the Thank You activity. the
+	// VoteManager object is passed to maintain concurrency. should the vote not be cast,
+	// a message is displayed and no ballot is printed.
 	
-	public void confirmVote(Entity tmpEn) {
-		String sID = vManager.generateSessionID();
-		vManager.addSID(sID);
-			
-		print(tmpEn, sID);
-			
-		svmainObj.incrementVCount(tmpEn.geteID(), tmpEn.getvCount());
-		svmainObj.sethasVotedForUser(currentUser.getnID());
-			
-		Intent toThankMsg = new Intent(EBallot.this, ThankUser.class);
-		toThankMsg.putExtra("vManager", vManager);
-		startActivity(toThankMsg);
-		finish();
-		svmainObj.fpClose();
+	public void confirmVote(final Entity tmpEn) {
+		
+		// the ballot is disabled while the vote is being cast in the background
+		
+		lstView.setEnabled(false);
+		
+		svmainObj.castVoteAsync(tmpEn.geteID(), currentUser.getnID(), new DBExecutor.Callback<String>() {
+			@Override
+			public void onResult(String sID) {
+				if(sID == null) {
+					lstView.setEnabled(true);
+					Toast.makeText(EBallot.this, "Your vote could not be recorded. Please contact an administrator.",
+							Toast.LENGTH_SHORT).show();
+					return;
+				}
+				
+				print(tmpEn, sID);
+				
+				Intent toThankMsg = new Intent(EBallot.this, ThankUser.class);
+				toThankMsg.putExtra("vManager", vManager);
+				startActivity(toThankMsg);
+				finish();
+			}
+		});
 	}
 	
 	// the print method allows the user to obtain the physical ballot.
 	// the Entity object is passed, as well as the session ID.
 	// the current system date is obtained, before the printBallot method in the
-	// SVMain class is called, with the candidate name being passed, along with the R file
-	// of the entity symbol, the current date, and the session ID.
+	// SVMain class is run in the background, with the candidate name being passed, along with
+	// the R file of the entity symbol, the current date, and the session ID.
 	
 	public void print(Entity tmpEn, String sID) {
 		Date currDate = new Date(System.currentTimeMillis());
-		svmainObj.printBallot(tmpEn.getcName(), new File(tmpEn.geteSym()+".R"), currDate.toString(),
+		svmainObj.printBallotAsync(tmpEn.getcName(), new File(tmpEn.geteSym()+".R"), currDate.toString(),
 				sID);
 	}
 }
@@ -0,0 +1,108 @@
+/*************************************************************
+ * FPCommand Class
+ * Represents a single command that has been sent to the Arduino and is awaiting
+ * its response, i.e. the acknowledgement or the error byte. The command is completed
+ * by the read listener of the FPManager class, or by its timeout, whichever comes first.
+ * A part of the SmartVote application, developed by ZedApps.
+ *
+ * @author Shamah M Zoha
+ * @email shamah1992@gmail.com
+ * @github bitbucket.org/smzoha/
+ ************************************************************/
+
+package com.zedapps.smartvote;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class FPCommand {
+	
+	// constants defining the states that a command can be in
+	
+	public static final int STATUS_PENDING = 0;
+	public static final int STATUS_ACK = 1;
+	public static final int STATUS_ERR = 2;
+	public static final int STATUS_TIMEOUT = 3;
+	
+	private final String command;	// the command byte sent to the Arduino
+	private final long timeout;		// the time, in milliseconds, to wait for the response
+	
+	private final CountDownLatch doneLatch = new CountDownLatch(1); // released upon completion
+	
+	private volatile int status = STATUS_PENDING;	// the current state of the command
+	private volatile int value = -1;				// the value returned along with the response, if any
+	
+	// constructor that takes in the command and the timeout of the command
+	
+	public FPCommand(String command, long timeout) {
+		this.command = command;
+		this.timeout = timeout;
+	}
+	
+	/******************************************************
+	 * 				GETTER & SETTER METHODS				  *
+	 ******************************************************/
+	
+	public String getCommand() {
+		return command;
+	}
+	
+	public long getTimeout() {
+		return timeout;
+	}
+	
+	public int getStatus() {
+		return status;
+	}
+	
+	public int getValue() {
+		return value;
+	}
+	
+	public boolean isDone() {
+		return status != STATUS_PENDING;
+	}
+	
+	public boolean isSuccess() {
+		return status == STATUS_ACK;
+	}
+	
+	/******************************************************
+	 * 			END OF GETTER & SETTER METHODS			  *
+	 ******************************************************/
+	
+	// completes the command with the status and the value provided. only the first call
+	// takes effect, such that a late response cannot overwrite a timeout and vice versa.
+	// returns true if this call completed the command.
+	
+	public boolean complete(int newStatus, int newValue) {
+		synchronized(this) {
+			if(isDone()) {
+				return false;
+			}
+			
+			value = newValue;
+			status = newStatus;
+		}
+		
+		doneLatch.countDown();
+		return true;
+	}
+	
+	// blocks the calling thread until the command is completed or the timeout expires.
+	// in case of the latter, the command is completed with the timeout status.
+	// returns the final status of the command.
+	
+	public int await() {
+		try {
+			if(!doneLatch.await(timeout, TimeUnit.MILLISECONDS)) {
+				complete(STATUS_TIMEOUT, -1);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			complete(STATUS_TIMEOUT, -1);
+		}
+		
+		return status;
+	}
+}
@@ -20,6 +20,10 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 import android.app.PendingIntent;
 import android.content.BroadcastReceiver;
@@ -47,6 +51,9 @@ public class FPManager {
 	UsbDeviceConnection usbDeviceConn; // the UsbDeviceConnection that connects to the Arduino
 	
 	Physicaloid serialDevice; // instance of the Physicaloid library that allows serial communication
+	volatile SerialTransport transport; // sends the blocks of data, i.e. the templates and the symbols, over the connection
+	
+	private int baudRate; // the baud rate of the serial connection, as set when it was last opened
 	
 	// constants to send command to the fingerprint scanner
 	
@@ -60,10 +67,24 @@ public class FPManager {
 	
 	private final String PRINT_BALLOT = Character.toString((char)0x6A);
 	
-	// constants defining the acknowledgement and the error bytes
+	// constants defining the time, in milliseconds, to wait for the response of each command.
+	// the scan timeout is the longest, since it includes the time the user takes to place the finger.
+	
+	public static final long SCAN_TIMEOUT = 15000;
+	public static final long ST_TIMEOUT = 5000;
+	public static final long VERIFY_TIMEOUT = 5000;
 	
-	private final String ACK_MSG = "*";
-	private final String ERR_MSG = "+";
+	// a shared timer that completes the pending commands once their timeout expires
+	
+	private static final ScheduledExecutorService timeoutTimer = Executors.newSingleThreadScheduledExecutor(
+			new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread t = new Thread(r, "FPCommandTimeout");
+					t.setDaemon(true);
+					return t;
+				}
+			});
 	
 	// flags that help in fingerprint process
 	
@@ -72,20 +93,61 @@ public class FPManager {
 	private boolean enrollStatus, enrollError, gtStatus, scanStatus, stStatus;
 	private int verifyStatus = Integer.MIN_VALUE; // max value - fail, min value - idle
 	
-	// the string object that contains the command of the current activity
+	// the buffer that the data is read into from the serial connection, and the parser that the data
+	// is passed to. both are allocated once, such that reading the responses creates no garbage.
+	
+	private final byte[] readBuf = new byte[256];
+	private final FPResponseParser parser = new FPResponseParser(new FPResponseParser.Listener() {
+		@Override
+		public void onEvent(byte command, int event, int value, RingBuffer rxBuffer) {
+			handleResponse(command, event, value, rxBuffer);
+		}
+	}, 1024);
 	
-	private String currActivity = "";
+	// the stream that the template received from the scanner is written to
+	
+	private FileOutputStream fos;
+	
+	// the command that has been sent to the Arduino and is awaiting response
+	
+	private volatile FPCommand pendingCmd;
+	
+	// the health of the session - the number of times the connection has been opened, the number of times
+	// it has been reopened after being lost, and the number of commands that were not answered in time
+	
+	private volatile int openCount = 0;
+	private volatile int reconnectCount = 0;
+	private volatile int timeoutCount = 0;
+	private volatile boolean lost = false; // flag that indicates that the connection was lost, and is to be reopened
 	
 	// constructor that takes in the application context and assigns it to the local variable.
 	// the Physicaloid object is created using the context object and the UsbManager object
-	// is instantiated as well.
+	// is instantiated as well. the settings of the link are read as the connection is opened.
 	
 	public FPManager(Context context) {
 		appContext = context;
 		serialDevice = new Physicaloid(appContext);
+		applySettings();
 		usbManager = (UsbManager) appContext.getSystemService(Context.USB_SERVICE);
 	}
 	
+	// reads the baud rate and the mode of the transfers from the settings, which may have been
+	// shipped with the database after the connection was first opened. the transport is replaced
+	// should either have changed. returns true if the baud rate has changed.
+	
+	private boolean applySettings() {
+		int baud = SVConfig.getInt(SVConfig.SERIAL_BAUD, 9600);
+		boolean framed = SVConfig.getBoolean(SVConfig.SERIAL_FRAMED, false);
+		boolean baudChanged = baud != baudRate;
+		
+		if(transport == null || baudChanged || framed != transport.isFramed()) {
+			baudRate = baud;
+			transport = new SerialTransport(serialDevice, framed, baud);
+		}
+		
+		return baudChanged;
+	}
+	
 	// method to check if the Arduino is connected to the Android device.
 	// returns boolean value depending on the status.
 	
@@ -93,28 +155,66 @@ public class FPManager {
 		return deviceExists;
 	}
 	
-	// method to open serial connection with the Arduino.
-	// if the connection is closed, only then is the connection opened.
-	// the baud rate is set to 9600 and the fpDevRead method is called to attach
-	// the readListener to the connection - to receive data from Arduino.
+	// method to check if the serial connection with the Arduino is open
+	
+	public boolean isConnected() {
+		return serialDevice.isOpened();
+	}
+	
+	// method to obtain the health of the serial session, as a line of text
+	
+	public String getSessionStatus() {
+		return "Serial link: " + (isConnected() ? "connected" : "disconnected") + " - opened: " + openCount
+				+ ", reconnects: " + reconnectCount + ", timeouts: " + timeoutCount;
+	}
 	
-	public void fpOpen() {
+	// method to open serial connection with the Arduino.
+	// if the connection is closed, only then is the connection opened. since the connection is held for the
+	// lifetime of the application, this is cheap to call whenever the connection is needed.
+	// the baud rate is set to 9600, unless set otherwise in the settings, and the fpDevRead method is called to attach
+	// the readListener to the connection - to receive data from Arduino. any listener attached before is removed.
+	// the settings are read again each time, and should the baud rate have changed, the connection is reopened.
+	
+	public synchronized void fpOpen() {
+		if(applySettings() && serialDevice.isOpened()) {
+			serialDevice.close();
+		}
+		
 		if(!serialDevice.isOpened()) {
-			serialDevice.setBaudrate(9600);
-			serialDevice.open();
-			fpDevRead();
+			serialDevice.setBaudrate(baudRate);
+			
+			if(serialDevice.open()) {
+				openCount++;
+				if(lost) {
+					reconnectCount++;
+					lost = false;
+				}
+				
+				serialDevice.clearReadListener();
+				fpDevRead();
+			}
 		}
 	}
 	
 	// method to close serial connection with the Arduino.
 	// if the connection is open with the Arduino, it is closed.
 	
-	public void fpClose() {
+	public synchronized void fpClose() {
 		if(serialDevice.isOpened()) {
 			serialDevice.close();
 		}
 	}
 	
+	// method called when the Arduino is detached. the connection is closed and the pending command is
+	// failed, such that the caller does not wait for its timeout. the connection is reopened once the
+	// Arduino is attached again and the permission is granted.
+	
+	public void onDetached() {
+		lost = true;
+		fpClose();
+		completePending(FPCommand.STATUS_ERR, -1);
+	}
+	
 	// method to obtain USB permission for the Arduino device.
 	// initially, a list of connected USB devices is obtained.
 	// the list is skimmed through to find the Arduino device. if it exists, the flag is set to true.
@@ -142,83 +242,99 @@ public class FPManager {
 	}
 	
 	// method to enroll fingerprint.
-	// the currActivity variable is set to the ENROLL_CMD, before the command is passed to the Arduino.
+	// the parser is set to the ENROLL_CMD, before the command is passed to the Arduino.
 	
 	public void fpEnroll() {
-		currActivity = ENROLL_CMD;
+		parser.begin(FPResponseParser.ENROLL_CMD);
 		fpDevWrite(ENROLL_CMD.getBytes());
 	}
 	
 	// method to obtain the enrolled template.
-	// the currActivity variable is set to the GT_CMD, before the flag is set to true (to indicate first run) 
+	// the parser is set to the GT_CMD, before the flag is set to true (to indicate first run) 
 	// and the command is passed to the Arduino.
 	
 	public void fpGetTemplate() {
-		currActivity = GT_CMD;
+		parser.begin(FPResponseParser.GT_CMD);
 		gtStatus = true;
 		fpDevWrite(GT_CMD.getBytes());
 	}
 	
-	// method to scan live fingerprint image.
-	// the currActivity variable is set to the SCAN_CMD, before the command is passed to the Arduino.
+	// method to scan live fingerprint image. returns the FPCommand object which is completed
+	// as soon as the Arduino responds with the acknowledgement or the error byte.
 	
-	public void fpScanVoter() {
-		currActivity = SCAN_CMD;
-		fpDevWrite(SCAN_CMD.getBytes());
+	public FPCommand fpScanVoterAsync() {
+		return issueCommand(SCAN_CMD, SCAN_TIMEOUT);
 	}
 	
-	// method to set binary template to the fingerprint scanner.
-	// the template file is provided, as well as the id value - the slot to store the file in.
-	// the currActivity variable is set to the ST_CMD, before the command is passed to the Arduino.
-	// the template file data is then converted to a byte array, before it is sent over a buffer of size 10.
-	// once the transfer is complete, the id is sent to the scanner to complete the process.
-	
-	public void fpSetTemplate(File templateFile, int id) {
-		if(templateFile.exists()) {	
-			currActivity = ST_CMD;
-			fpDevWrite(ST_CMD.getBytes());
-			byte[] fpData = convertToByteArray(templateFile);
-			
-			int bCount = 0;
-			while(bCount < fpData.length) {
-				if((fpData.length - bCount) < 10) {
-					int size = fpData.length - bCount;
-					
-					byte [] tmp = new byte[size];
-					for(int i = 0; i < size; i++) {
-						tmp[i] = fpData[bCount];
-						bCount++;
-					}
-					
-					fpDevWrite(tmp);
-				} else {
-					byte [] tmp = new byte[10];
-					for(int i = 0; i < 10; i++) {
-						tmp[i] = fpData[bCount];
-						bCount++;
-					}
-					
-					fpDevWrite(tmp);
-				}
-				
-				try {
-					Thread.sleep(5);
-				} catch (InterruptedException e) {
-					e.printStackTrace();
+	// method to set binary template to the fingerprint scanner, the data being provided as held by
+	// the TemplateStore, as well as the id value - the slot to store it in. the data is sent using the
+	// SerialTransport object, and once the transfer is complete, the id is sent to complete the process.
+	// if no data is provided, or the framed transfer is not acknowledged, the command is completed
+	// with the error status.
+	
+	public FPCommand fpSetTemplateAsync(byte[] fpData, int id) {
+		if(fpData == null) {
+			FPCommand failed = new FPCommand(ST_CMD, ST_TIMEOUT);
+			failed.complete(FPCommand.STATUS_ERR, -1);
+			return failed;
+		}
+		
+		FPCommand cmd = issueCommand(ST_CMD, ST_TIMEOUT);
+		
+		if(!transport.send(fpData)) {
+			stStatus = false;
+			cmd.complete(FPCommand.STATUS_ERR, -1);
+			return cmd;
+		}
+		
+		byte [] fileID = {(byte) id};
+		fpDevWrite(fileID);
+		
+		return cmd;
+	}
+	
+	// method to verify fingerprint - the live impression against the templates loaded to the scanner.
+	// returns the FPCommand object which is completed with the id of the matching slot as its value,
+	// or with the error status if there is no match.
+	
+	public FPCommand fpVerifyAsync() {
+		return issueCommand(VERIFY_CMD, VERIFY_TIMEOUT);
+	}
+	
+	// method to send a command to the Arduino and register it as the pending command.
+	// any command that is still pending is superseded, and is completed with the timeout status.
+	// a timeout is scheduled for the new command, before the command byte is written.
+	
+	private FPCommand issueCommand(String command, long timeout) {
+		FPCommand prevCmd = pendingCmd;
+		if(prevCmd != null) {
+			prevCmd.complete(FPCommand.STATUS_TIMEOUT, -1);
+		}
+		
+		final FPCommand cmd = new FPCommand(command, timeout);
+		pendingCmd = cmd;
+		parser.begin((byte) command.charAt(0));
+		
+		timeoutTimer.schedule(new Runnable() {
+			@Override
+			public void run() {
+				if(cmd.complete(FPCommand.STATUS_TIMEOUT, -1)) {
+					timeoutCount++;
 				}
 			}
-			
-			byte [] fileID = {(byte) id};
-			fpDevWrite(fileID);
-		}
+		}, timeout, TimeUnit.MILLISECONDS);
+		
+		fpDevWrite(command.getBytes());
+		return cmd;
 	}
 	
-	// method to verify fingerprint - the live impression against the templates in the database.
-	// the currActivity variable is set to the VERIFY_CMD, before the command is passed to the Arduino.
+	// method to complete the pending command with the status and the value received from the Arduino
 	
-	public void fpVerify() {
-		currActivity = VERIFY_CMD;
-		fpDevWrite(VERIFY_CMD.getBytes());
+	private void completePending(int status, int value) {
+		FPCommand cmd = pendingCmd;
+		if(cmd != null) {
+			cmd.complete(status, value);
+		}
 	}
 	
 	// method to getEnrollStatus flag
@@ -259,13 +375,13 @@ public class FPManager {
 	
 	// method to print the physical ballot.
 	// the candidate name, the file bearing the symbol, the current system time, and the session id is passed.
-	// initially, the PRINT_BALLOT constant is passed to start the process. the currAcitivty variable is used to hold the command.
+	// initially, the PRINT_BALLOT constant is passed to start the process. the parser is set to the command, which expects no response.
 	// the candidate name is then sent over to the printer, before the symbol file is broken down to a byte array
-	// and passed through a buffer of size 10. Once the transfer is complete, the current time and the session id is sent,
+	// and sent using the SerialTransport object. Once the transfer is complete, the current time and the session id is sent,
 	// which completes the whole process.
 	
 	public void printBallot(String cName, File symFile, String date_time, String randNum) {
-		currActivity = PRINT_BALLOT;
+		parser.begin(FPResponseParser.PRINT_CMD);
 		fpDevWrite(PRINT_BALLOT.getBytes());
 		byte [] cNameLen = {(byte)cName.length()};
 		fpDevWrite(cNameLen);
@@ -274,33 +390,8 @@ public class FPManager {
 		if(symFile.exists()) {
 			byte[] symData = convertToByteArray(symFile);
 			
-			int bCount = 0;
-			while(bCount < symData.length) {
-				if((symData.length - bCount) < 10) {
-					int size = symData.length - bCount;
-					
-					byte [] tmp = new byte[size];
-					for(int i = 0; i < size; i++) {
-						tmp[i] = symData[bCount];
-						bCount++;
-					}
-					
-					fpDevWrite(tmp);
-				} else {
-					byte [] tmp = new byte[10];
-					for(int i = 0; i < 10; i++) {
-						tmp[i] = symData[bCount];
-						bCount++;
-					}
-					
-					fpDevWrite(tmp);
-				}
-				
-				try {
-					Thread.sleep(5);
-				} catch (InterruptedException e) {
-					e.printStackTrace();
-				}
+			if(!transport.send(symData)) {
+				toastMsg("Failed to send the symbol to the printer.");
 			}
 		}
 		
@@ -315,7 +406,8 @@ public class FPManager {
 	
 	// the broadcast receiver which helps in seeking permission to establish connection with the Arduino.
 	// the pending intent sends the constant for USB permission to the receiver, which calls the UsbManager
-	// object to grant the permission. if the permission is not granted, the application closes.
+	// object to grant the permission. if the permission is not granted, the application closes. if it is granted
+	// after the connection was lost, the connection is reopened.
 	
 	final BroadcastReceiver br = new BroadcastReceiver() {
 		@Override
@@ -325,6 +417,8 @@ public class FPManager {
 				if(!permStatus) {
 					toastMsg("Failed to connect. Application will close.");
 					System.exit(0);
+				} else if(lost) {
+					fpOpen();
 				}
 			}
 		}
@@ -332,127 +426,27 @@ public class FPManager {
 	
 	
 	// fpDevRead method which attaches a ReadListener to the Physicaloid serial connection object.
-	// this includes an onRead method, which reads response from the serial connection and handles task based
-	// on the command sent.
+	// this includes an onRead method, which reads the response from the serial connection into the preallocated
+	// buffer, and passes it to the parser. the parser calls the handleResponse method for each response found.
 	
 	private void fpDevRead() {
 		if(serialDevice.isOpened()) {
 			serialDevice.addReadListener(new ReadLisener() {
-				FileOutputStream fos;
-
 				@Override
 				public void onRead(int size) {
-					byte [] buffer = new byte[size];
-					serialDevice.read(buffer, size);
-					
-					// if the currActivity holds ENROLL_CMD, it means that enroll has started. multiple flags are
-					// used to ensure that all three enroll steps are completed. if there is an error, a message is displayed.
-					
-					if(currActivity.equals(ENROLL_CMD)) {
-						if(buffer[0] == ACK_MSG.getBytes()[0]) {
-							if(!eStart) {
-								eStart = true;	
-							} else if(eStart && !e1) {
-								e1 = true;
-							} else if(eStart && e1 && !e2) {
-								e2 = true;
-							} else if(eStart && e1 && e2 && !e3) {
-								eStart = e1 = e2 = e3 = false;
-								enrollStatus = true;
-							}
-						} else if (buffer[0] == ERR_MSG.getBytes()[0]) {
-							toastMsg("Error in Enrollment!");
-							enrollError = true;
+					while(size > 0) {
+						int n = serialDevice.read(readBuf, Math.min(size, readBuf.length));
+						if(n <= 0) {
+							break;
 						}
-					}
-					
-					// if the currActivity variable holds GT_CMD, it means that the Android device is to receive template
-					// file from the scanner. a temporary file is created in the database directory, before a FileOutputStream
-					// object is instantiated to write the data received from the scanner.
-					
-					if(currActivity.equals(GT_CMD)) {
+						size -= n;
 						
-						if(buffer[0] == ERR_MSG.getBytes()[0]) {
-							toastMsg("Something went wrong. Try again.");
-							currActivity = "";
-						} else {
-							File fpDatFile = new File(app_data_loc + "tmp.dat");
-							
-							if(gtStatus) {
-								if(fpDatFile.exists()) {
-									fpDatFile.delete();
-									
-									if(fos != null) {
-										try {
-											fos.close();
-										} catch (IOException e) {
-											e.printStackTrace();
-										}
-										fos = null;
-									}
-								}
-								
-								gtStatus = false;
-							}
-							
-							
-							if(fos == null) {
-								try {
-									fos = new FileOutputStream(fpDatFile);
-								} catch (FileNotFoundException e) {
-									e.printStackTrace();
-								} 
-							}
-							
-							try {
-								fos.write(buffer);
-								fos.flush();
-							} catch (FileNotFoundException e) {
-								e.printStackTrace();
-							} catch (IOException e) {
-								e.printStackTrace();
-							}
-						}
-					}
-					
-					// if the currActivity holds SCAN_CMD, it means that the scanner is intended to scan the live fingerprint
-					// impression and store it in the Arduino's buffer. if an acknowledgement message is received, the process
-					// is a success. if the message received is an error, the scanning process has failed.
-					
-					if(currActivity.equals(SCAN_CMD)){
-						if(buffer[0] == ACK_MSG.getBytes()[0]) {
-							scanStatus = true;
-						} else if (buffer[0] == ERR_MSG.getBytes()[0]) {
-							scanStatus = false;
-						}
-					}
-					
-					// if the currActivity holds ST_CMD, it means that a previously enrolled template file has been sent to the 
-					// scanner for verification. if an acknowledgement message is received, the process was a success. 
-					// if the message received is an error, the set template process has failed.
-					
-					if(currActivity.equals(ST_CMD)) {
-						if(buffer[0] == ACK_MSG.getBytes()[0]) {
-							stStatus = true;
-						} else if(buffer[0] == ERR_MSG.getBytes()[0]) {
-							stStatus = false;
-						}
-					}
-					
-					
-					// if the currActivity holds VERIFY_CMD, it means that a request for verification is sent to the scanner.
-					// if the first byte received is an acknowledgement byte, the next byte is checked for the id for which
-					// the live fingerprint impression has matched, before it is stored in the verifyStatus flag. if the
-					// first byte yields an error code, the verifyStatus flag is set to the maximum value of integer, to
-					// indicate that there was no match.
-					
-					if(currActivity.equals(VERIFY_CMD)){
-						byte [] statusByte = {buffer[0]};
+						// if a framed transfer is in progress, the bytes received are the acknowledgements of the frames
 						
-						if(statusByte[0] == ACK_MSG.getBytes()[0]) {
-							verifyStatus = (int)buffer[1];
-						} else if (statusByte[0] == ERR_MSG.getBytes()[0]) {
-							verifyStatus = Integer.MAX_VALUE;
+						if(transport.isInTransfer()) {
+							transport.onReceive(readBuf, 0, n);
+						} else {
+							parser.receive(readBuf, 0, n);
 						}
 					}
 				}
@@ -462,30 +456,159 @@ public class FPManager {
 		}
 	}
 	
+	// handleResponse method handles the events reported by the parser, based on the command sent.
+	
+	private void handleResponse(byte command, int event, int value, RingBuffer rxBuffer) {
+		switch(command) {
+		
+		// if the command is ENROLL_CMD, it means that enroll has started. multiple flags are
+		// used to ensure that all three enroll steps are completed. if there is an error, a message is displayed.
+		
+		case FPResponseParser.ENROLL_CMD:
+			if(event == FPResponseParser.EVENT_ACK) {
+				if(!eStart) {
+					eStart = true;	
+				} else if(eStart && !e1) {
+					e1 = true;
+				} else if(eStart && e1 && !e2) {
+					e2 = true;
+				} else if(eStart && e1 && e2 && !e3) {
+					eStart = e1 = e2 = e3 = false;
+					enrollStatus = true;
+				}
+			} else if(event == FPResponseParser.EVENT_ERR) {
+				toastMsg("Error in Enrollment!");
+				enrollError = true;
+			}
+			break;
+			
+		// if the command is GT_CMD, it means that the Android device is to receive template file from the scanner.
+		// the data is written to a temporary file in the database directory.
+		
+		case FPResponseParser.GT_CMD:
+			if(event == FPResponseParser.EVENT_ERR) {
+				toastMsg("Something went wrong. Try again.");
+			} else if(event == FPResponseParser.EVENT_DATA) {
+				writeTemplateData(rxBuffer, value);
+			}
+			break;
+			
+		// if the command is SCAN_CMD, it means that the scanner is intended to scan the live fingerprint
+		// impression and store it in the Arduino's buffer. if an acknowledgement message is received, the process
+		// is a success. if the message received is an error, the scanning process has failed.
+			
+		case FPResponseParser.SCAN_CMD:
+			scanStatus = event == FPResponseParser.EVENT_ACK;
+			completePending(scanStatus ? FPCommand.STATUS_ACK : FPCommand.STATUS_ERR, -1);
+			break;
+			
+		// if the command is ST_CMD, it means that a previously enrolled template file has been sent to the 
+		// scanner for verification. if an acknowledgement message is received, the process was a success. 
+		// if the message received is an error, the set template process has failed.
+			
+		case FPResponseParser.ST_CMD:
+			stStatus = event == FPResponseParser.EVENT_ACK;
+			completePending(stStatus ? FPCommand.STATUS_ACK : FPCommand.STATUS_ERR, -1);
+			break;
+			
+		// if the command is VERIFY_CMD, it means that a request for verification is sent to the scanner.
+		// the acknowledgement carries the id for which the live fingerprint impression has matched, which is
+		// stored in the verifyStatus flag. on error, the verifyStatus flag is set to the maximum value of
+		// integer, to indicate that there was no match.
+			
+		case FPResponseParser.VERIFY_CMD:
+			if(event == FPResponseParser.EVENT_ACK) {
+				verifyStatus = (byte) value;
+				completePending(FPCommand.STATUS_ACK, value);
+			} else {
+				verifyStatus = Integer.MAX_VALUE;
+				completePending(FPCommand.STATUS_ERR, -1);
+			}
+			break;
+		}
+	}
+	
+	// writes the template data held in the buffer to the temporary file. on first run, the previous
+	// temporary file is deleted and a new FileOutputStream object is instantiated.
+	
+	private void writeTemplateData(RingBuffer rxBuffer, int len) {
+		File fpDatFile = new File(app_data_loc + "tmp.dat");
+		
+		if(gtStatus) {
+			if(fos != null) {
+				try {
+					fos.close();
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+				fos = null;
+			}
+			
+			if(fpDatFile.exists()) {
+				fpDatFile.delete();
+			}
+			
+			gtStatus = false;
+		}
+		
+		try {
+			if(fos == null) {
+				fos = new FileOutputStream(fpDatFile);
+			}
+			
+			rxBuffer.writeTo(fos, len);
+			fos.flush();
+		} catch (FileNotFoundException e) {
+			e.printStackTrace();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+	
 	// fpDevWrite method takes in a byte array and writes it over the serial connection with the help of the Physicaloid
-	// object.
+	// object. should the connection have been lost, it is reopened first.
 	
 	public void fpDevWrite(byte [] data) {
+		if(!serialDevice.isOpened()) {
+			fpOpen();
+		}
+		
 		serialDevice.write(data);
 	}
 	
 	
 	// the convertToByteArray helps in creating a byte array from an file object that is provided to it.
 	// it utilizes a file input stream to read the byte and append them to an array that is returned at the end of the process.
+	// the stream is closed once the file is read, to avoid leaking the file descriptor.
 	
-	private FileInputStream fis;
 	public byte[] convertToByteArray(File f) {
 		byte [] data = null;
+		FileInputStream fis = null;
 		
 		try {
 			fis = new FileInputStream(f);
 			data = new byte[(int)f.length()];
 			
-			fis.read(data, 0, data.length);
+			int read = 0;
+			while(read < data.length) {
+				int n = fis.read(data, read, data.length - read);
+				if(n < 0) {
+					break;
+				}
+				read += n;
+			}
 		} catch (FileNotFoundException e) {
 			e.printStackTrace();
 		} catch (IOException e) {
 			e.printStackTrace();
+		} finally {
+			if(fis != null) {
+				try {
+					fis.close();
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+			}
 		}
 		
 		return data;
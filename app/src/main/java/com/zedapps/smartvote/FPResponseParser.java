@@ -0,0 +1,175 @@
+/*************************************************************
+ * FPResponseParser Class
+ * Parses the responses of the Arduino to the commands sent by the FPManager, byte by byte,
+ * out of a RingBuffer that the received data is held in. Since the responses are parsed
+ * by state rather than by position in a read, they may be split over several reads or arrive
+ * together in one. The parser reports typed events to its listener, without creating garbage.
+ * A part of the SmartVote application, developed by ZedApps.
+ *
+ * @author Shamah M Zoha
+ * @email shamah1992@gmail.com
+ * @github bitbucket.org/smzoha/
+ ************************************************************/
+
+package com.zedapps.smartvote;
+
+public class FPResponseParser {
+	
+	// constants defining the commands that the responses are parsed for
+	
+	public static final byte ENROLL_CMD = '!';
+	public static final byte GT_CMD = '#';
+	public static final byte SCAN_CMD = '$';
+	public static final byte ST_CMD = '%';
+	public static final byte VERIFY_CMD = '&';
+	public static final byte PRINT_CMD = 0x6A;
+	
+	// constants defining the acknowledgement and the error bytes
+	
+	public static final byte ACK_BYTE = '*';
+	public static final byte ERR_BYTE = '+';
+	
+	// constants defining the events reported to the listener
+	
+	public static final int EVENT_ACK = 1;	// the command succeeded. the value holds the slot id for the verify command
+	public static final int EVENT_ERR = 2;	// the command failed
+	public static final int EVENT_DATA = 3;	// template data is available in the buffer. the value holds its length
+	
+	// the interface that receives the events. on the data event, the listener is to consume the
+	// data from the buffer provided.
+	
+	public interface Listener {
+		void onEvent(byte command, int event, int value, RingBuffer rxBuffer);
+	}
+	
+	// constants defining the states of the parser
+	
+	private static final int STATE_IDLE = 0;	// no response is expected, the bytes are discarded
+	private static final int STATE_STATUS = 1;	// the acknowledgement or the error byte is expected
+	private static final int STATE_SLOT = 2;	// the slot id that follows the acknowledgement of the verify command
+	private static final int STATE_DATA = 3;	// the template data, which follows the get template command
+	
+	// the time, in nanoseconds, that the response of a superseded command is still expected in
+	
+	private static final long STALE_WINDOW = 1000000000L;
+	
+	private final Listener listener;
+	private final RingBuffer rxBuffer; // the buffer that the received data is held in until parsed
+	
+	private byte command = 0;		// the command that the responses are parsed for
+	private int state = STATE_IDLE;	// the current state of the parser
+	
+	private byte staleCommand = 0;			// the superseded command whose late response is to be dropped
+	private int staleState = STATE_IDLE;	// the part of the late response that is still expected
+	private long staleDeadline = 0;			// the time after which the late response is no longer expected
+	
+	// constructor that takes in the listener of the events and the capacity of the buffer
+	
+	public FPResponseParser(Listener listener, int capacity) {
+		this.listener = listener;
+		rxBuffer = new RingBuffer(capacity);
+	}
+	
+	// sets the command that the following responses belong to. any data of the previous command
+	// that has not been parsed yet is discarded. should the previous command still be awaiting its
+	// status byte (it timed out, or was superseded), its late response would otherwise be taken as
+	// the response of the new command, hence it is dropped when it arrives within the stale window.
+	// the enroll command expects the status byte throughout, and the response of the get template
+	// command cannot be told apart from the data, so neither is treated as stale.
+	
+	public synchronized void begin(byte command) {
+		if((state == STATE_STATUS || state == STATE_SLOT)
+				&& this.command != ENROLL_CMD && this.command != GT_CMD) {
+			staleCommand = this.command;
+			staleState = state;
+			staleDeadline = System.nanoTime() + STALE_WINDOW;
+		} else {
+			staleState = STATE_IDLE;
+		}
+		
+		this.command = command;
+		state = command == PRINT_CMD ? STATE_IDLE : STATE_STATUS;
+		rxBuffer.clear();
+	}
+	
+	// appends the bytes received to the buffer and parses them. should the bytes not fit in the
+	// buffer at once, they are parsed in parts.
+	
+	public synchronized void receive(byte[] src, int off, int len) {
+		while(len > 0) {
+			int n = rxBuffer.write(src, off, len);
+			off += n;
+			len -= n;
+			parse();
+		}
+	}
+	
+	// consumes the bytes held in the buffer and reports the events found in them.
+	// the enroll command keeps expecting the status byte, since each enroll step is acknowledged.
+	
+	private void parse() {
+		while(rxBuffer.available() > 0) {
+			if(staleState != STATE_IDLE) {
+				if(System.nanoTime() - staleDeadline < 0) {
+					dropStale(rxBuffer.read());
+					continue;
+				}
+				
+				staleState = STATE_IDLE;
+			}
+			
+			switch(state) {
+			case STATE_STATUS:
+				if(command == GT_CMD && rxBuffer.peek() != ERR_BYTE) {
+					state = STATE_DATA;
+					break;
+				}
+				
+				int b = rxBuffer.read();
+				
+				if(b == ACK_BYTE) {
+					if(command == VERIFY_CMD) {
+						state = STATE_SLOT;
+					} else {
+						if(command != ENROLL_CMD) {
+							state = STATE_IDLE;
+						}
+						listener.onEvent(command, EVENT_ACK, -1, rxBuffer);
+					}
+				} else if(b == ERR_BYTE) {
+					state = STATE_IDLE;
+					listener.onEvent(command, EVENT_ERR, -1, rxBuffer);
+				}
+				break;
+			case STATE_SLOT:
+				state = STATE_IDLE;
+				listener.onEvent(command, EVENT_ACK, rxBuffer.read(), rxBuffer);
+				break;
+			case STATE_DATA:
+				int len = rxBuffer.available();
+				listener.onEvent(command, EVENT_DATA, len, rxBuffer);
+				
+				if(rxBuffer.available() == len) {
+					rxBuffer.clear(); // the listener did not consume the data
+				}
+				break;
+			default:
+				rxBuffer.clear();
+				break;
+			}
+		}
+	}
+	
+	// consumes a byte of the late response of the superseded command, without reporting it.
+	// the acknowledgement of the verify command is followed by the slot id, which is dropped too.
+	
+	private void dropStale(int b) {
+		if(staleState == STATE_SLOT) {
+			staleState = STATE_IDLE;
+		} else if(b == ACK_BYTE && staleCommand == VERIFY_CMD) {
+			staleState = STATE_SLOT;
+		} else if(b == ACK_BYTE || b == ERR_BYTE) {
+			staleState = STATE_IDLE;
+		}
+	}
+}
@@ -19,6 +19,7 @@ import android.content.Intent;
 import android.os.Bundle;
 import android.view.View;
 import android.widget.Button;
+import android.widget.EditText;
 import android.widget.Toast;
 
 public class FPVerify extends Activity {
@@ -27,6 +28,9 @@ public class FPVerify extends Activity {
 	SVMain svmainObj;     // instance of SVMain class, which houses all the modules
 	
 	Button btnFPVerifyStart; // button to start the verification process
+	EditText txtNIDVerify;	 // text field for the voter to input their NID value, in the 1:1 mode
+	
+	boolean nidMode; // flag that indicates if the voters are verified against their NID value (1:1)
 	
 	@Override
 	protected void onCreate(Bundle savedInstanceState) {
@@ -39,7 +43,7 @@ public class FPVerify extends Activity {
 		vManager = (VoteManager) getIntent().getParcelableExtra("vManager");
 			
 		// instantiate object of the SVMain class and bind the vManager object to it.
-		// next, open serial connection with the Arduino.
+		// next, ensure the serial connection with the Arduino is open.
 		
 		svmainObj = new SVMain(getApplicationContext());
 		svmainObj.setVManager(vManager);
@@ -48,6 +52,16 @@ public class FPVerify extends Activity {
 		// instantiate the UI components
 		
 		btnFPVerifyStart = (Button) findViewById(R.id.btnFPVerifyStart);
+		txtNIDVerify = (EditText) findViewById(R.id.txtNIDVerify);
+		
+		// should the deployment verify the voters against their NID value, the field to input
+		// the NID value is shown
+		
+		nidMode = svmainObj.isNIDVerifyMode();
+		
+		if(nidMode) {
+			txtNIDVerify.setVisibility(View.VISIBLE);
+		}
 		
 		// if the user clicks on the "Start" button, the identify() method is run
 		
@@ -63,95 +77,110 @@ public class FPVerify extends Activity {
 	
 	public void identify() {
 		
-		// fpIdentify method from the SVMain object is called to trigger the fingerprint scanning,
-		// set template from the database and verification processes.
-		
-		svmainObj.fpIdentify();
+		// in the 1:1 mode, should the NID value be provided, the fingerprint is verified against that
+		// user alone, and should it be left empty, the fingerprint is searched among the administrators
+		// only. otherwise, the fingerprint is searched among all users. the scanning, the setting
+		// of the templates and the verification, as well as obtaining the information of the user
+		// identified, are run in the background, with the "Start" button disabled until done.
 		
-		// the NID value attached to the fingerprint data is obtained.
+		final String enteredNID = nidMode ? txtNIDVerify.getText().toString().trim() : "";
+		btnFPVerifyStart.setEnabled(false);
 		
-		String fpNID = svmainObj.getNID();
+		svmainObj.identifyAsync(enteredNID, new DBExecutor.Callback<SVMain.Identification>() {
+			@Override
+			public void onResult(SVMain.Identification result) {
+				btnFPVerifyStart.setEnabled(true);
+				
+				// should the process fail, the reason is displayed. if the NID value is not empty, i.e. the
+				// fingerprint impression provided is a match, the user is referred to the appropriate panel.
+				// if no match is found, a message is displayed, asking the voters to enter their NID value
+				// in the 1:1 mode should it have been left empty.
+				
+				if(result == null) {
+					Toast.makeText(FPVerify.this, "Something went wrong. Try again.", Toast.LENGTH_SHORT).show();
+				} else if(result.message != null) {
+					Toast.makeText(FPVerify.this, result.message, Toast.LENGTH_SHORT).show();
+				} else if(!result.nid.equals("")) {
+					route(result.user);
+				} else if(nidMode && enteredNID.equals("")) {
+					Toast.makeText(FPVerify.this, "Match not found! Please enter your NID and try again.",
+							Toast.LENGTH_SHORT).show();
+				} else {
+					Toast.makeText(FPVerify.this, "Match not found! Try again.", Toast.LENGTH_SHORT).show();
+				}
+			}
+		});
+	}
+	
+	// refers the user bearing the information provided to the appropriate panel, once obtained
+	// from the database
+	
+	private void route(User currentUser) {
 		
-		// if the NID value is not empty, i.e. the fingerprint impression provided is a match, a connection
-		// with the database is established to obtain the user information. the connection is closed shortly
-		// after to avoid memory leakage. if no match is found, a message is displayed.
+		// if the user exists in the database, the classification between them is done. otherwise, a message is shown
+		// which states that the user is not found. if the user does not belong to any class, i.e. voter, admin or super
+		// admin, an invalid user status message is displayed.
 		
-		if(fpNID != "") {
-			svmainObj.dbOpen();
-			User currentUser = svmainObj.getSpecificUser(fpNID);
-			svmainObj.dbClose();
+		if(currentUser != null) {
 			
-			// if the user exists in the database, the classification between them is done. otherwise, a message is shown
-			// which states that the user is not found. if the user does not belong to any class, i.e. voter, admin or super
-			// admin, an invalid user status message is displayed.
+			// if the user is a super admin, the user is referred directly to the administrative panel.
+			// the VoteManager object is passed for concurrency and the current User object is also passed
+			// to start an active session.
 			
-			if(currentUser != null) {
+			if(currentUser.isSAdmin()) {
+				Intent toAdminPanel = new Intent(FPVerify.this, AdminPanel.class);
+				toAdminPanel.putExtra("vManager", vManager);
+				toAdminPanel.putExtra("usr", currentUser);
+				startActivity(toAdminPanel);
+				finish();
 				
-				// if the user is a super admin, the user is referred directly to the administrative panel.
-				// the VoteManager object is passed for concurrency and the current User object is also passed
-				// to start an active session. the serial connection is closed to ensure smooth transition.
+			// if the user is an admin, it is checked if the user is also a voter or not. if the user is a
+		    // voter as well, they are referred to the AdminVoterPanel, where they have the provision to select
+			// panels. if not, the user is referred to the Administrative panel.
+			// the VoteManager object is passed for concurrency and the current User object is also passed
+			// to start an active session.
 				
-				if(currentUser.isSAdmin()) {
+			} else if(currentUser.isAdmin()) {
+				if(currentUser.isVoter()) {
+					Intent toAVSplit = new Intent(FPVerify.this, AdminVoterPanel.class);
+					toAVSplit.putExtra("vManager", vManager);
+					toAVSplit.putExtra("usr", currentUser);
+					startActivity(toAVSplit);
+					finish();
+					
+				} else {
 					Intent toAdminPanel = new Intent(FPVerify.this, AdminPanel.class);
 					toAdminPanel.putExtra("vManager", vManager);
 					toAdminPanel.putExtra("usr", currentUser);
 					startActivity(toAdminPanel);
 					finish();
-					svmainObj.fpClose();
-					
-				// if the user is an admin, it is checked if the user is also a voter or not. if the user is a
-			    // voter as well, they are referred to the AdminVoterPanel, where they have the provision to select
-				// panels. if not, the user is referred to the Administrative panel.
-				// the VoteManager object is passed for concurrency and the current User object is also passed
-				// to start an active session. the serial connection is closed to ensure smooth transition.
-					
-				} else if(currentUser.isAdmin()) {
-					if(currentUser.isVoter()) {
-						Intent toAVSplit = new Intent(FPVerify.this, AdminVoterPanel.class);
-						toAVSplit.putExtra("vManager", vManager);
-						toAVSplit.putExtra("usr", currentUser);
-						startActivity(toAVSplit);
+				}
+			
+			// if the user is found to be a voter, it is checked if they have already casted their vote.
+			// if the condition is true, a message is displayed. else, they are redirected to the voting panel.
+			// the VoteManager object is passed for concurrency and the current User object is also passed
+			// to start an active session.
+				
+			} else if(currentUser.isVoter()) {
+				if(currentUser.isHasVoted()) {
+					Toast.makeText(FPVerify.this, "You have already casted your vote!", Toast.LENGTH_SHORT).show();
+				} else {
+					if(vManager.isVotingStatus()) {
+						Intent toVInfoPanel = new Intent(FPVerify.this, UserInfo.class);
+						toVInfoPanel.putExtra("vManager", vManager);
+						toVInfoPanel.putExtra("usr", currentUser);
+						startActivity(toVInfoPanel);
 						finish();
-						svmainObj.fpClose();
 						
 					} else {
-						Intent toAdminPanel = new Intent(FPVerify.this, AdminPanel.class);
-						toAdminPanel.putExtra("vManager", vManager);
-						toAdminPanel.putExtra("usr", currentUser);
-						startActivity(toAdminPanel);
-						finish();
-						svmainObj.fpClose();
+						Toast.makeText(FPVerify.this, "Voting process has not started yet. Try again later.", Toast.LENGTH_SHORT).show();
 					}
-				
-				// if the user is found to be a voter, it is checked if they have already casted their vote.
-				// if the condition is true, a message is displayed. else, they are redirected to the voting panel.
-				// the VoteManager object is passed for concurrency and the current User object is also passed
-				// to start an active session. the serial connection is closed to ensure smooth transition.
-					
-				} else if(currentUser.isVoter()) {
-					if(currentUser.isHasVoted()) {
-						Toast.makeText(FPVerify.this, "You have already casted your vote!", Toast.LENGTH_SHORT).show();
-					} else {
-						if(vManager.isVotingStatus()) {
-							Intent toVInfoPanel = new Intent(FPVerify.this, UserInfo.class);
-							toVInfoPanel.putExtra("vManager", vManager);
-							toVInfoPanel.putExtra("usr", currentUser);
-							startActivity(toVInfoPanel);
-							finish();
-							svmainObj.fpClose();
-							
-						} else {
-							Toast.makeText(FPVerify.this, "Voting process has not started yet. Try again later.", Toast.LENGTH_SHORT).show();
-						}
-					}
-				} else {
-					Toast.makeText(FPVerify.this, "Invalid user status! Try again.", Toast.LENGTH_SHORT).show();
 				}
 			} else {
-				Toast.makeText(FPVerify.this, "User not found! Try again.", Toast.LENGTH_SHORT).show();
+				Toast.makeText(FPVerify.this, "Invalid user status! Try again.", Toast.LENGTH_SHORT).show();
 			}
 		} else {
-			Toast.makeText(FPVerify.this, "Match not found! Try again.", Toast.LENGTH_SHORT).show();			
+			Toast.makeText(FPVerify.this, "User not found! Try again.", Toast.LENGTH_SHORT).show();
 		}
 	}
 }
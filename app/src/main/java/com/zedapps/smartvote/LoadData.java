@@ -12,11 +12,13 @@
 package com.zedapps.smartvote;
 
 import java.io.File;
+import java.util.Locale;
 
 import com.zedapps.smartvote.modules.User;
 import com.zedapps.smartvote.modules.VoteManager;
 
 import android.app.Activity;
+import android.app.ProgressDialog;
 import android.content.Intent;
 import android.os.Bundle;
 import android.os.Environment;
@@ -45,7 +47,7 @@ public class LoadData extends Activity {
 		vManager = (VoteManager) getIntent().getParcelableExtra("vManager");
 		
 		// instantiate object of the SVMain class and bind the vManager object to it.
-		// next, initiate the serial connection with the Arduino		
+		// next, ensure the serial connection with the Arduino is open
 		
 		svmainObj = new SVMain(getApplicationContext());
 		svmainObj.setVManager(vManager);
@@ -69,14 +71,21 @@ public class LoadData extends Activity {
 	
 	
 	// obtains the input from the text field and assigns them to file and string objects
-	// respectively. the SVMain object is used to unzip the file and the resulting boolean
-	// value is stored in the result variable. if the operation was a success, the identify
+	// respectively. should the file be a voter roll (a CSV file), it is imported into the
+	// database instead. otherwise, the SVMain object is used to unzip the file and the resulting
+	// boolean value is stored in the result variable. if the operation was a success, the identify
 	// method is called for verification. if not, a message is displayed.
 	
 	private void load() {
 		File zipFile = new File(Environment.getExternalStorageDirectory().getPath() +
 				"/" + txtPath.getText().toString());
 		String pass = txtPass.getText().toString();
+		
+		if(zipFile.getName().toLowerCase(Locale.US).endsWith(".csv")) {
+			importRoll(zipFile);
+			return;
+		}
+		
 		boolean result = svmainObj.unzipFiles(zipFile, pass);
 		
 		if(result) {
@@ -87,28 +96,73 @@ public class LoadData extends Activity {
 	}
 	
 	
+	// imports the voter roll provided into the database in the background, along with the templates
+	// and the photos in the fpFiles and images directories next to it. the database has to be loaded
+	// beforehand. the progress is displayed in a dialog, which is dismissed once the import completes,
+	// and the outcome is displayed.
+	
+	private void importRoll(File rollFile) {
+		if(!rollFile.exists() || !svmainObj.checkFiles()) {
+			Toast.makeText(this, "Voter roll not loaded. Check path, and load the database first.", Toast.LENGTH_SHORT).show();
+			return;
+		}
+		
+		final ProgressDialog progress = new ProgressDialog(this);
+		progress.setMessage("Importing voters...");
+		progress.setCancelable(false);
+		progress.show();
+		
+		svmainObj.importVotersAsync(rollFile, new VoterImporter.ProgressListener() {
+			@Override
+			public void onProgress(final int rows, final int imported, final long rowsPerSecond) {
+				runOnUiThread(new Runnable() {
+					@Override
+					public void run() {
+						progress.setMessage("Importing voters... " + imported + " of " + rows
+								+ " rows (" + rowsPerSecond + " rows/s)");
+					}
+				});
+			}
+		}, new DBExecutor.Callback<String>() {
+			@Override
+			public void onResult(String result) {
+				progress.dismiss();
+				Toast.makeText(LoadData.this, result, Toast.LENGTH_LONG).show();
+			}
+		});
+	}
+	
 	// method to identify user using the live fingerprint image and the data stored in the database
 	
 	public void identify() {
 		
-		// fpIdentify method from the SVMain object is called to trigger the fingerprint scanning,
-		// set template from the database and verification processes.
+		// the fingerprint scanning, set template from the database and verification processes are run
+		// in the background, along with obtaining the information of the user identified, if any.
 		
-		svmainObj.fpIdentify();
+		svmainObj.identifyAsync("", new DBExecutor.Callback<SVMain.Identification>() {
+			@Override
+			public void onResult(SVMain.Identification result) {
+				route(result);
+			}
+		});
+	}
+	
+	// refers the user identified to the administrative panel, or removes the database loaded
+	// should no super administrator be identified
+	
+	private void route(SVMain.Identification result) {
 		
-		// the NID value attached to the fingerprint data is obtained.
+		// should the process fail, the reason is displayed first.
 		
-		String fpNID = svmainObj.getNID();
+		if(result != null && result.message != null) {
+			Toast.makeText(LoadData.this, result.message, Toast.LENGTH_SHORT).show();
+		}
 		
-		// if the NID value is not empty, i.e. the fingerprint impression provided is a match, a connection
-		// with the database is established to obtain the user information. the connection is closed shortly
-		// after to avoid memory leakage. if no match is found, a message is displayed and database is removed.
+		// if the NID value is not empty, i.e. the fingerprint impression provided is a match, the user information
+		// obtained from the database is checked. if no match is found, a message is displayed and database is removed.
 		
-		if(fpNID != null) {
-				
-			svmainObj.dbOpen();
-			User currentUser = svmainObj.getSpecificUser(fpNID);
-			svmainObj.dbClose();
+		if(result != null && !result.nid.equals("")) {
+			User currentUser = result.user;
 			
 			// if the user exists in the database, it is checked whether the user is a super administrator or not.
 			// depending the status of the user, the next actions are taken. if the database yields that is null, 
@@ -118,7 +172,7 @@ public class LoadData extends Activity {
 				
 				// if the user is a super administrator, the user is referred directly to the administrative panel.
 				// the VoteManager object is passed for concurrency and the current User object is also passed
-				// to start an active session. the serial connection is closed to ensure smooth transition.
+				// to start an active session.
 				
 				if(currentUser.isSAdmin()) {
 					Intent toAdminPanel = new Intent(getApplicationContext(), AdminPanel.class);
@@ -126,7 +180,6 @@ public class LoadData extends Activity {
 					toAdminPanel.putExtra("usr", currentUser);
 					startActivity(toAdminPanel);
 					finish();
-					svmainObj.fpClose();
 					
 					// if the user not a super administrator, the database loaded is regarded void.
 					// the files that are extracted are removed and appropriate messages are displayed.
@@ -78,7 +78,7 @@ public class NewVoter extends Activity {
 		currentUser = (User) getIntent().getParcelableExtra("usr");
 				
 		// instantiate object of the SVMain class and bind the vManager object to it.
-		// next, initiate the serial connection with the Arduino
+		// next, ensure the serial connection with the Arduino is open
 				
 		svmainObj = new SVMain(getApplicationContext());
 		svmainObj.setVManager(vManager);
@@ -143,7 +143,7 @@ public class NewVoter extends Activity {
 		btnSave.setOnClickListener(new View.OnClickListener() {
 			@Override
 			public void onClick(View v) {
-				String [] data = new String[8];
+				final String [] data = new String[8];
 				
 				data[0] = txtNID.getText().toString();
 				data[1] = txtFName.getText().toString();
@@ -166,35 +166,24 @@ public class NewVoter extends Activity {
 				data[6] = txtFAName.getText().toString();
 				data[7] = txtMOName.getText().toString();
 				
-				svmainObj.addNewVoter(data);
+				// the voter is added to the database and the temporary template to the template store,
+				// against the NID value, in the background, with the "Save" button disabled until done.
+				// should it fail, e.g. if the NID value is known already, the reason is displayed, and the
+				// temporary template is kept such that saving can be tried again.
 				
-				// finally, the temporary files are copied to the designated directory, 
-				// with them being renamed accordingly with the NID value. 
-				
-				File voterFP = new File(app_data_loc + "fpFiles/" + data[0]+".dat");
-				File voterImg = new File(app_data_loc + "images/" + data[0]+".jpg");
-				
-				
-				try {
-					FileUtils.moveFile(tmpFP, voterFP);
-					FileUtils.moveFile(tmpImg, voterImg);
-				} catch (IOException e) {
-					e.printStackTrace();
-				}
-				
-				Toast.makeText(NewVoter.this, "Voter successfully added to database!", Toast.LENGTH_SHORT).show();
-				
-				// the user is then taken back to the Administrative panel, with the
-				// VoteManager object passed back to maintain concurrency and the User object
-				// for maintaing the session. the serial connection is closed in the end to
-				// ensure smooth transition.
+				btnSave.setEnabled(false);
 				
-				Intent toAdminPanel = new Intent(NewVoter.this, AdminPanel.class);
-				toAdminPanel.putExtra("vManager", vManager);
-				toAdminPanel.putExtra("usr", currentUser);
-				startActivity(toAdminPanel);
-				finish();
-				svmainObj.fpClose();
+				svmainObj.addNewVoterAsync(data, tmpFP, new DBExecutor.Callback<String>() {
+					@Override
+					public void onResult(String result) {
+						if(result != null) {
+							btnSave.setEnabled(true);
+							Toast.makeText(NewVoter.this, result, Toast.LENGTH_SHORT).show();
+						} else {
+							saved(data[0]);
+						}
+					}
+				});
 			}
 		});
 		
@@ -235,6 +224,34 @@ public class NewVoter extends Activity {
 		startActivityForResult(captureIntent, CAMERA_REQ);
 	}
 	
+	// completes the addition of the voter bearing the NID value provided, once stored. the temporary
+	// template is removed, and the temporary image is moved to the designated directory, with it
+	// being stored against the NID value.
+	
+	private void saved(String nid) {
+		tmpFP.delete();
+		
+		File voterImg = new File(app_data_loc + "images/" + nid + ".jpg");
+		
+		try {
+			FileUtils.moveFile(tmpImg, voterImg);
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		
+		Toast.makeText(NewVoter.this, "Voter successfully added to database!", Toast.LENGTH_SHORT).show();
+		
+		// the user is then taken back to the Administrative panel, with the
+		// VoteManager object passed back to maintain concurrency and the User object
+		// for maintaing the session.
+		
+		Intent toAdminPanel = new Intent(NewVoter.this, AdminPanel.class);
+		toAdminPanel.putExtra("vManager", vManager);
+		toAdminPanel.putExtra("usr", currentUser);
+		startActivity(toAdminPanel);
+		finish();
+	}
+	
 	// onActivityResult is overrode, to handle the situation where the requestCode is either
 	// CAMERA_REQ or FIN_REQ. for the first scenario, the application moves to the crop image
 	// intent, while for the other, the image is saved.
@@ -11,8 +11,6 @@
 
 package com.zedapps.smartvote;
 
-import java.util.ArrayList;
-
 import com.zedapps.smartvote.modules.User;
 import com.zedapps.smartvote.modules.VoteManager;
 
@@ -22,7 +20,6 @@ import android.content.DialogInterface;
 import android.content.Intent;
 import android.os.Bundle;
 import android.view.View;
-import android.widget.ArrayAdapter;
 import android.widget.Button;
 import android.widget.AdapterView;
 import android.widget.AdapterView.OnItemLongClickListener;
@@ -36,6 +33,7 @@ public class RemoveUser extends Activity {
 	SVMain svmainObj;     // instance of SVMain class, which houses all the modules
 	
 	ListView lvUsers; // the list displaying the NID values of all tuples of the user table
+	VoterPageAdapter userListAdapter; // the adapter which reads the NID values in pages
 	
 	Button btnBackAP; // the button that takes the user back to the administrative panel
 	
@@ -60,62 +58,34 @@ public class RemoveUser extends Activity {
 		lvUsers = (ListView) findViewById(R.id.lstUser);
 		btnBackAP = (Button) findViewById(R.id.btnBackAP);
 		
-		// creating two array list, the first of which takes the User objects in
-		// while the other is used to store only the NID values. the second list is
-		// filled with a loop that strips the NID values from the first list.
-		
-		final ArrayList<User> userData = svmainObj.getUserData();
-		final ArrayList<String> userNID = new ArrayList<String>();
-		
-		for(int i = 0; i < userData.size(); i++) {
-			userNID.add(userData.get(i).getnID());
-		}
-		
-		// an array adapter is created with the userNID list and attached to the list view
+		// a paged adapter is attached to the list view, which reads the NID values of the
+		// users from the database in the background as they are scrolled into view
 		
-		final ArrayAdapter<String> userListAdapter = new ArrayAdapter<String>(this,
-				android.R.layout.simple_list_item_1, android.R.id.text1, userNID);
+		userListAdapter = new VoterPageAdapter(this, svmainObj);
 		lvUsers.setAdapter(userListAdapter);
+		userListAdapter.reload();
 		
-		// if an item in the list view is long pressed, the user object in the clicked position
-		// is retrieved from the list. a confirmation dialog is displayed, which displays the name
-		// of the user as well. upon clicking the "Yes" button on the dialog, the record is removed
-		// from the list view, as well as the database and the file system. the "No" button dismiss
-		// the dialog.
+		// if an item in the list view is long pressed, the information of the user in the clicked
+		// position is obtained from the database. a confirmation dialog is then displayed, which
+		// displays the name of the user as well.
 		
 		lvUsers.setOnItemLongClickListener(new OnItemLongClickListener() {
-			public boolean onItemLongClick(AdapterView<?> parent, View view, final int position, long id) {
-				final User tmpUser = userData.get(position);
+			public boolean onItemLongClick(AdapterView<?> parent, View view, int position, long id) {
+				String nid = userListAdapter.getItem(position);
 				
-				AlertDialog.Builder diagBuilder = new AlertDialog.Builder(RemoveUser.this);
-				diagBuilder.setTitle("Confirmation".toString());
-				diagBuilder.setMessage("Are you sure you want to remove the user - NID: " +
-						tmpUser.getnID() + " Name: " + tmpUser.getName() + ".");
-				diagBuilder.setPositiveButton("Yes", new DialogInterface.OnClickListener() {
-					@Override
-					public void onClick(DialogInterface dialog, int which) {
-						svmainObj.removeSpecificUser(tmpUser.getnID());
-						userData.remove(position);
-						userNID.remove(position);
-						userListAdapter.notifyDataSetChanged();
-						dialog.cancel();
-						Toast.makeText(RemoveUser.this, "User has been removed from the system.",
-								Toast.LENGTH_SHORT).show();
-					}
-				});
+				if(nid != null) {
+					svmainObj.getSpecificUserAsync(nid, new DBExecutor.Callback<User>() {
+						@Override
+						public void onResult(User tmpUser) {
+							if(tmpUser != null) {
+								confirmRemoval(tmpUser);
+							}
+						}
+					});
+				}
 				
-				diagBuilder.setNegativeButton("No", new DialogInterface.OnClickListener() {
-					@Override
-					public void onClick(DialogInterface dialog, int which) {
-						dialog.cancel();
-					}
-				});
-				
-				diagBuilder.show();
-								
 				return true;
 			}
-			
 		});
 		
 		// should the user press the "Exit" button, the user is then taken back to the 
@@ -134,4 +104,39 @@ public class RemoveUser extends Activity {
 			}
 		});
 	}
+	
+	// displays the dialog that confirms the removal of the user provided. upon clicking the "Yes"
+	// button on the dialog, the record is removed from the database and the file system in the
+	// background, and the list is read again. the "No" button dismiss the dialog.
+	
+	private void confirmRemoval(final User tmpUser) {
+		AlertDialog.Builder diagBuilder = new AlertDialog.Builder(RemoveUser.this);
+		diagBuilder.setTitle("Confirmation".toString());
+		diagBuilder.setMessage("Are you sure you want to remove the user - NID: " +
+				tmpUser.getnID() + " Name: " + tmpUser.getName() + ".");
+		diagBuilder.setPositiveButton("Yes", new DialogInterface.OnClickListener() {
+			@Override
+			public void onClick(DialogInterface dialog, int which) {
+				dialog.cancel();
+				
+				svmainObj.removeSpecificUserAsync(tmpUser.getnID(), new DBExecutor.Callback<Void>() {
+					@Override
+					public void onResult(Void result) {
+						userListAdapter.reload();
+						Toast.makeText(RemoveUser.this, "User has been removed from the system.",
+								Toast.LENGTH_SHORT).show();
+					}
+				});
+			}
+		});
+		
+		diagBuilder.setNegativeButton("No", new DialogInterface.OnClickListener() {
+			@Override
+			public void onClick(DialogInterface dialog, int which) {
+				dialog.cancel();
+			}
+		});
+		
+		diagBuilder.show();
+	}
 }
@@ -11,6 +11,7 @@
 
 package com.zedapps.smartvote;
 
+import java.io.File;
 import java.util.ArrayList;
 
 import com.zedapps.smartvote.modules.Entity;
@@ -18,11 +19,15 @@ import com.zedapps.smartvote.modules.User;
 import com.zedapps.smartvote.modules.VoteManager;
 
 import android.app.Activity;
+import android.app.AlertDialog;
+import android.content.DialogInterface;
 import android.content.Intent;
 import android.os.Bundle;
+import android.os.Environment;
 import android.view.View;
 import android.widget.Button;
 import android.widget.TextView;
+import android.widget.Toast;
 
 public class Report extends Activity {
 	
@@ -54,20 +59,67 @@ public class Report extends Activity {
 		btnRepExit = (Button) findViewById(R.id.btnRepExit);
 		txtRep = (TextView) findViewById(R.id.txtRep);
 		
-		// create an array list which encapsulates the list of entity obtained from
-		// the database
+		// the list of entity is obtained away from the UI thread, with the vote counts
+		// obtained from the tally held in memory rather than the database
 		
-		ArrayList<Entity> eList = svmainObj.getEntityData();
+		svmainObj.getEntityDataAsync(new DBExecutor.Callback<ArrayList<Entity>>() {
+			@Override
+			public void onResult(ArrayList<Entity> eList) {
+				showReport(eList);
+			}
+		});
 		
-		// the data retrieved from the database is then retrieved in the text view
-		// placed in the interface. the entity name, the candidate name, and the vote
-		// count is displayed as the report.
+		// a long press on the report, by the super administrator, runs the database benchmarks on a
+		// copy of the database, in a background thread - the vote commit latency, and the election
+		// day replay against each storage preset. the result is appended to the report once the
+		// benchmark completes.
 		
-		for(int i = 0; i < eList.size(); i++) {
-			Entity tmpEn = eList.get(i);
-			txtRep.append(tmpEn.geteName() + " " + tmpEn.getcName() + " " + tmpEn.getvCount()
-					+ "\n");
-		}
+		txtRep.setOnLongClickListener(new View.OnLongClickListener() {
+			@Override
+			public boolean onLongClick(View v) {
+				if(!currentUser.isSAdmin()) {
+					return false;
+				}
+				
+				txtRep.append("\nRunning database benchmark...\n");
+				
+				new Thread() {
+					public void run() {
+						final String result = DBBenchmark.run(getApplicationContext(), 200) + "\n"
+								+ DBBenchmark.runElectionDay(getApplicationContext(), 1000);
+						
+						runOnUiThread(new Runnable() {
+							@Override
+							public void run() {
+								txtRep.append(result + "\n");
+							}
+						});
+					}
+				}.start();
+				
+				return true;
+			}
+		});
+		
+		// a long press on the title of the report exports the session IDs printed on the ballots
+		// to a text file, sessionid.txt, in the external storage, which can be checked against
+		// the ballots. the outcome is displayed once the export completes.
+		
+		findViewById(R.id.txtRepPrmpt).setOnLongClickListener(new View.OnLongClickListener() {
+			@Override
+			public boolean onLongClick(View v) {
+				File outFile = new File(Environment.getExternalStorageDirectory(), "sessionid.txt");
+				
+				svmainObj.exportSessionIDsAsync(outFile, new DBExecutor.Callback<String>() {
+					@Override
+					public void onResult(String status) {
+						Toast.makeText(Report.this, status, Toast.LENGTH_SHORT).show();
+					}
+				});
+				
+				return true;
+			}
+		});
 		
 		// should the user press the "Exit" button, the user is then taken back to the 
 		// Administrative panel, with the VoteManager object passed back to maintain 
@@ -84,4 +136,73 @@ public class Report extends Activity {
 			}
 		});
 	}
+	
+	// the data retrieved from the database is then retrieved in the text view
+	// placed in the interface. the entity name, the candidate name, and the vote
+	// count is displayed as the report.
+	
+	private void showReport(ArrayList<Entity> eList) {
+		if(eList != null) {
+			for(int i = 0; i < eList.size(); i++) {
+				Entity tmpEn = eList.get(i);
+				txtRep.append(tmpEn.geteName() + " " + tmpEn.getcName() + " " + tmpEn.getvCount()
+						+ "\n");
+			}
+		}
+		
+		// the hit and miss counts of the templates held by the scanner and of the user cache are
+		// displayed as well, along with the health of the serial session with the Arduino. the
+		// query plan check of the database and the recount of the votes from the vote journal
+		// follow, once they have been run in the background. should the recount differ from the
+		// tally, a super administrator is offered to rebuild the tally from it.
+		
+		txtRep.append("\n" + svmainObj.getResidencyStats() + "\n");
+		txtRep.append(svmainObj.getUserCacheStats() + "\n");
+		txtRep.append(svmainObj.getSessionStatus() + "\n");
+		
+		svmainObj.getQueryPlanStatusAsync(new DBExecutor.Callback<String>() {
+			@Override
+			public void onResult(String status) {
+				txtRep.append(status + "\n");
+				
+				svmainObj.verifyTallyAsync(new DBExecutor.Callback<TallyEngine.Recount>() {
+					@Override
+					public void onResult(TallyEngine.Recount recount) {
+						txtRep.append(recount + "\n");
+						
+						if(recount.canRebuild() && currentUser.isSAdmin()) {
+							confirmRebuild();
+						}
+					}
+				});
+			}
+		});
+	}
+	
+	// prompts the super administrator to confirm that the tally is to be replaced by the recount
+	// from the vote journal. the tally is rebuilt in the background, and the outcome appended to
+	// the report.
+	
+	private void confirmRebuild() {
+		AlertDialog.Builder diagBuilder = new AlertDialog.Builder(Report.this);
+		diagBuilder.setTitle("Confirmation");
+		diagBuilder.setMessage("The recount from the vote journal differs from the tally. Do you wish to replace "
+				+ "the tally with the recount?");
+		diagBuilder.setPositiveButton("Yes", new DialogInterface.OnClickListener() {
+			@Override
+			public void onClick(DialogInterface dialog, int which) {
+				dialog.dismiss();
+				
+				svmainObj.rebuildTallyAsync(new DBExecutor.Callback<String>() {
+					@Override
+					public void onResult(String status) {
+						txtRep.append(status + "\n");
+					}
+				});
+			}
+		});
+		
+		diagBuilder.setNegativeButton("No", null);
+		diagBuilder.show();
+	}
 }
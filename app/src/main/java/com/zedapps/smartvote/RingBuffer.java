@@ -0,0 +1,124 @@
+/*************************************************************
+ * RingBuffer Class
+ * A fixed size circular buffer of bytes, which holds the data received from the Arduino until
+ * it is consumed by the FPResponseParser. The storage is allocated once, such that receiving
+ * data does not create any garbage.
+ * A part of the SmartVote application, developed by ZedApps.
+ *
+ * @author Shamah M Zoha
+ * @email shamah1992@gmail.com
+ * @github bitbucket.org/smzoha/
+ ************************************************************/
+
+package com.zedapps.smartvote;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+public class RingBuffer {
+	
+	private final byte[] data;	// the storage of the buffer
+	private int head = 0;		// the index of the next byte to be read
+	private int count = 0;		// the number of bytes held in the buffer
+	
+	// constructor that takes in the capacity of the buffer
+	
+	public RingBuffer(int capacity) {
+		data = new byte[capacity];
+	}
+	
+	/******************************************************
+	 * 				GETTER & SETTER METHODS				  *
+	 ******************************************************/
+	
+	public int available() {
+		return count;
+	}
+	
+	public int capacity() {
+		return data.length;
+	}
+	
+	/******************************************************
+	 * 			END OF GETTER & SETTER METHODS			  *
+	 ******************************************************/
+	
+	// appends the bytes provided to the buffer. returns the number of bytes appended, which is
+	// less than the length provided if the buffer is full.
+	
+	public int write(byte[] src, int off, int len) {
+		len = Math.min(len, data.length - count);
+		int tail = (head + count) % data.length;
+		int first = Math.min(len, data.length - tail);
+		
+		System.arraycopy(src, off, data, tail, first);
+		System.arraycopy(src, off + first, data, 0, len - first);
+		
+		count += len;
+		return len;
+	}
+	
+	// returns the next byte without removing it, or -1 if the buffer is empty
+	
+	public int peek() {
+		return count == 0 ? -1 : data[head] & 0xFF;
+	}
+	
+	// removes and returns the next byte, or -1 if the buffer is empty
+	
+	public int read() {
+		if(count == 0) {
+			return -1;
+		}
+		
+		int b = data[head] & 0xFF;
+		head = (head + 1) % data.length;
+		count--;
+		return b;
+	}
+	
+	// removes up to the number of bytes provided and copies them to the array.
+	// returns the number of bytes copied.
+	
+	public int read(byte[] dst, int off, int len) {
+		len = Math.min(len, count);
+		int first = Math.min(len, data.length - head);
+		
+		System.arraycopy(data, head, dst, off, first);
+		System.arraycopy(data, 0, dst, off + first, len - first);
+		
+		skip(len);
+		return len;
+	}
+	
+	// removes up to the number of bytes provided and writes them to the stream.
+	// returns the number of bytes written.
+	
+	public int writeTo(OutputStream out, int len) throws IOException {
+		len = Math.min(len, count);
+		int first = Math.min(len, data.length - head);
+		
+		out.write(data, head, first);
+		if(len > first) {
+			out.write(data, 0, len - first);
+		}
+		
+		skip(len);
+		return len;
+	}
+	
+	// removes up to the number of bytes provided without reading them
+	
+	public void skip(int len) {
+		len = Math.min(len, count);
+		head = (head + len) % data.length;
+		count -= len;
+	}
+	
+	// removes all the bytes held in the buffer
+	
+	public void clear() {
+		head = 0;
+		count = 0;
+	}
+}
@@ -0,0 +1,76 @@
+/*************************************************************
+ * SVApplication Class
+ * Holds the state that is shared by all the activities for the lifetime of the application,
+ * namely the serial session with the Arduino. The session is kept open across the screens,
+ * rather than being opened and closed by each activity, and is reopened on its own when the
+ * Arduino is attached again after being disconnected.
+ * A part of the SmartVote application, developed by ZedApps.
+ *
+ * @author Shamah M Zoha
+ * @email shamah1992@gmail.com
+ * @github bitbucket.org/smzoha/
+ ************************************************************/
+
+package com.zedapps.smartvote;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+
+import android.app.Application;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.hardware.usb.UsbManager;
+
+public class SVApplication extends Application {
+	
+	private FPManager fpManager; // the serial session with the Arduino, shared by the activities
+	
+	// on creation, the session is created and the broadcast receivers are registered for the
+	// lifetime of the application - the one that handles the USB permission, and the one that
+	// follows the Arduino being attached and detached.
+	
+	@Override
+	public void onCreate() {
+		super.onCreate();
+		fpManager = new FPManager(this);
+		
+		registerReceiver(fpManager.br, new IntentFilter(FPManager.ACTION_USB_PERMISSION));
+		
+		IntentFilter usbFilter = new IntentFilter();
+		usbFilter.addAction(UsbManager.ACTION_USB_DEVICE_ATTACHED);
+		usbFilter.addAction(UsbManager.ACTION_USB_DEVICE_DETACHED);
+		registerReceiver(usbReceiver, usbFilter);
+		
+		// the session ID log is opened in the background, such that it is read before the first
+		// vote is cast
+		
+		DBExecutor.write(new Callable<SessionLog>() {
+			@Override
+			public SessionLog call() throws IOException {
+				return SessionLog.getInstance();
+			}
+		}, null);
+	}
+	
+	// returns the serial session of the application that the context provided belongs to
+	
+	public static FPManager getFPManager(Context context) {
+		return ((SVApplication) context.getApplicationContext()).fpManager;
+	}
+	
+	// the broadcast receiver which closes the session when the Arduino is detached, and requests
+	// the permission again when it is attached, such that the session is reopened once granted
+	
+	private final BroadcastReceiver usbReceiver = new BroadcastReceiver() {
+		@Override
+		public void onReceive(Context context, Intent intent) {
+			if(UsbManager.ACTION_USB_DEVICE_DETACHED.equals(intent.getAction())) {
+				fpManager.onDetached();
+			} else if(UsbManager.ACTION_USB_DEVICE_ATTACHED.equals(intent.getAction())) {
+				fpManager.fpPerm();
+			}
+		}
+	};
+}
@@ -0,0 +1,114 @@
+/*************************************************************
+ * SVConfig Class
+ * Holds the settings of a deployment, which are read from the svconfig.properties file that
+ * is shipped along with the database in the data zip file. Should the file or a setting not
+ * exist, the default value is used, which keeps the original behaviour of the application.
+ * A part of the SmartVote application, developed by ZedApps.
+ *
+ * @author Shamah M Zoha
+ * @email shamah1992@gmail.com
+ * @github bitbucket.org/smzoha/
+ ************************************************************/
+
+package com.zedapps.smartvote;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.Properties;
+
+import android.os.Environment;
+
+public class SVConfig {
+	
+	// constant that contains the path to the file holding the settings
+	
+	private static final File configFile = new File(Environment.getDataDirectory().getAbsolutePath() +
+			"/data/com.zedapps.smartvote/databases/svconfig.properties");
+	
+	// the keys of the settings, along with the values that they can hold
+	
+	public static final String VERIFY_MODE = "verify.mode";		// the way the voters are identified at the booth
+	public static final String VERIFY_MODE_1N = "identify";		// the fingerprint is searched among all users
+	public static final String VERIFY_MODE_NID = "nid";			// the NID is entered first and only that user is verified
+	
+	public static final String SERIAL_BAUD = "serial.baud";		// the baud rate of the link with the Arduino
+	public static final String SERIAL_FRAMED = "serial.framed";	// whether the data is sent in frames, which the firmware acknowledges
+	
+	public static final String DB_PROFILE = "db.profile";		// the storage preset of the database - default, durable, balanced or fast
+	public static final String DB_WAL = "db.wal";				// the settings that override those of the preset
+	public static final String DB_SYNCHRONOUS = "db.synchronous";
+	public static final String DB_MMAP_SIZE = "db.mmap_size";
+	public static final String DB_CACHE_SIZE = "db.cache_size";
+	public static final String DB_TEMP_STORE = "db.temp_store";
+	
+	public static final String TALLY_CHECKPOINT = "tally.checkpoint";	// the number of votes between checkpoints of the tally
+	
+	public static final String USER_CACHE_SIZE = "cache.users";	// the number of users held by the user cache
+	
+	public static final String SID_SYNC = "sid.sync";	// the number of session IDs logged between syncs of the log
+	
+	private static Properties settings; // the settings read from the file
+	
+	// returns the value of the setting, or the default value provided if the setting does not exist
+	
+	public static synchronized String get(String key, String defValue) {
+		if(settings == null) {
+			settings = load();
+		}
+		
+		String value = settings.getProperty(key);
+		return value == null ? defValue : value.trim();
+	}
+	
+	// returns the value of the setting as a boolean
+	
+	public static boolean getBoolean(String key, boolean defValue) {
+		return Boolean.parseBoolean(get(key, Boolean.toString(defValue)));
+	}
+	
+	// returns the value of the setting as an integer. the default value is returned if the
+	// setting does not hold a valid number.
+	
+	public static int getInt(String key, int defValue) {
+		try {
+			return Integer.parseInt(get(key, Integer.toString(defValue)));
+		} catch (NumberFormatException e) {
+			return defValue;
+		}
+	}
+	
+	// discards the settings, such that they are read again on next use. called whenever the files
+	// in the database directory are replaced.
+	
+	public static synchronized void reload() {
+		settings = null;
+	}
+	
+	// reads the settings from the file. an empty set of settings is returned if the file does not exist.
+	
+	private static Properties load() {
+		Properties props = new Properties();
+		
+		if(configFile.exists()) {
+			FileInputStream in = null;
+			
+			try {
+				in = new FileInputStream(configFile);
+				props.load(in);
+			} catch (IOException e) {
+				e.printStackTrace();
+			} finally {
+				if(in != null) {
+					try {
+						in.close();
+					} catch (IOException e) {
+						e.printStackTrace();
+					}
+				}
+			}
+		}
+		
+		return props;
+	}
+}
@@ -16,13 +16,15 @@ import java.io.File;
 import java.io.IOException;
 import java.sql.SQLException;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 
 import org.apache.commons.io.FileUtils;
-import org.apache.commons.io.FilenameUtils;
 
 import com.zedapps.smartvote.modules.Entity;
+import com.zedapps.smartvote.modules.SessionIDGenerator;
 import com.zedapps.smartvote.modules.User;
 import com.zedapps.smartvote.modules.VoteManager;
 
@@ -37,25 +39,35 @@ import android.widget.Toast;
 public class SVMain {
 	
 	FPManager fpManager; // instance of the FPManager class, which ensures serial communication
-	DatabaseManager dbManager; // instance of the DatabaseManager class, which connects to the database
 	VoteManager vManager; // instance of the VoteManager class, which manages concurrency
 	
 	
 	private static String db_loc = Environment.getDataDirectory().getAbsolutePath() +	// constant that defines
 			"/data/com.zedapps.smartvote/databases/";									// the location of the database files
 	private static String db_name = "svdatabase.db"; // the database file name
+	private static String fp_store_name = "fpStore.dat"; // the packed fingerprint template file name
 	protected String NID_VAL; // the string object that holds the NID value of the current user
 	
+	private static TemplateStore templateStore; // the packed store of the fingerprint templates
+	private static CandidateSet candidateSet; // the users to be searched, in the order of search
+	private static final TemplateBankManager bankManager = new TemplateBankManager(); // tracks the scanner's slots
+	
 	Context appContext; // context object that holds the application context
 	
 	
-	// default constructor which takes in the application context and instantiates the
-	// FPManager and DatabaseManager objects
+	// default constructor which takes in the application context, and obtains the FPManager object
+	// of the serial session, which is held for the lifetime of the application
 	
 	public SVMain(Context context) {
 		appContext = context;
-		fpManager = new FPManager(appContext);
-		dbManager = new DatabaseManager(appContext);
+		fpManager = SVApplication.getFPManager(appContext);
+	}
+	
+	// returns the DatabaseManager object shared by the application. it is obtained on each use
+	// rather than held, since it is closed and replaced whenever the database file is replaced.
+	
+	private DatabaseManager getDBManager() {
+		return DatabaseManager.getInstance(appContext);
 	}
 	
 	
@@ -69,16 +81,29 @@ public class SVMain {
 		return fpManager.fpDeviceExists();
 	}
 	
-	// opens serial connection with the Arduino
+	// opens serial connection with the Arduino, unless it is open already. the connection is
+	// held by the application, and is not closed when the activities change.
 	
 	public void fpOpen() {
 		fpManager.fpOpen();
 	}
 	
-	// closes serial connection with the Arduino
+	// returns the health of the serial session with the Arduino, as a line of text
 	
-	public void fpClose() {
-		fpManager.fpClose();
+	public String getSessionStatus() {
+		return fpManager.getSessionStatus();
+	}
+	
+	// returns the version of the database schema and the result of the query plan check
+	
+	public String getQueryPlanStatus() {
+		return getDBManager().getQueryPlanStatus();
+	}
+	
+	// returns the hit and miss counts of the user cache, as a line of text
+	
+	public String getUserCacheStats() {
+		return getDBManager().getUserCacheStats();
 	}
 	
 	// requests USB Permission to allow serial connectivity
@@ -124,66 +149,295 @@ public class SVMain {
 	}
 	
 	// a single method that houses the scan voter, set template and the verification methods
-	// that can be found in the FPManager class, along with proper pauses to ensure that a
-	// synchronization between the Arduino and the Android device can be established.
-	// at first, the live fingerprint impression is scanned, followed by the setting of
-	// database into the scanner. the handling for the 200 fingerprint capacity is done here,
-	// by calling the verifying method once the capacity of the scanner's buffer is full.
-	// also, 10 bytes are sent over a buffer at a time to ensure perfect transmission of data.
-	
-	public void fpIdentify() {
+	// that can be found in the FPManager class. each step waits on the FPCommand returned by
+	// the FPManager, such that the process advances as soon as the Arduino responds, rather
+	// than after a fixed pause. at first, the live fingerprint impression is scanned, followed
+	// by the setting of database into the scanner. the handling for the 200 fingerprint capacity
+	// is done by the TemplateBankManager, which splits the templates into banks and keeps track
+	// of the templates held by the scanner, such that only the missing ones are uploaded.
+	// waits on the scanner, hence should not be run on the UI thread. returns the message to be
+	// displayed should the process fail, or null once it is complete, with the NID value of the
+	// match, if any, obtained through getNID.
+	
+	public String fpIdentify() {
+		NID_VAL = "";
+		
 		try {
-			fpManager.fpScanVoter();
-			Thread.sleep(7000);
-			
-			if(fpManager.getScanStatus()) {
-				List<File> fpFiles = getFpFiles();
+			if(fpManager.fpScanVoterAsync().await() == FPCommand.STATUS_ACK) {
+				TemplateStore store = getTemplateStore();
+				CandidateSet candidates = getCandidateSet();
+				bankManager.setPinned(candidates.getAdmins());
 				
-				int count = 0, prevBulkSize = 0;
+				// a repeat attempt is most often made soon after the vote, while the template of the voter is
+				// still held by the scanner. hence, should the scanner hold the template of any voter who has
+				// voted already, the templates held are verified once as they are, before any is uploaded.
 				
-				for(int i = 0; i < fpFiles.size(); i++) {
-					fpManager.fpSetTemplate(fpFiles.get(i), i);
-					Thread.sleep(2000);
-					count++;
-					
-					if(count == 200) {
-						fpManager.fpVerify();
-						Thread.sleep(2000);
-						
-						int tmpStatus = fpManager.getVerifyStatus() & 0xFF;
-						
-						if(tmpStatus > -1 && tmpStatus != Integer.MAX_VALUE) {
-							NID_VAL = FilenameUtils.removeExtension(fpFiles.get(prevBulkSize+tmpStatus).getName()); 
-							count = 0;
-							break;
-						}
-						
-						count = 0;
-						prevBulkSize = i;
-					}
+				String matchNID = null;
+				
+				if(bankManager.holdsAny(candidates.getVoted())) {
+					matchNID = verifyBank();
 				}
 				
-				if(count != 0) {
-					fpManager.fpVerify();
-					Thread.sleep(2000);
-					
-					int tmpStatus = fpManager.getVerifyStatus() & 0xFF;
-					
-					if(tmpStatus > -1 && tmpStatus != Integer.MAX_VALUE) {
-						NID_VAL = FilenameUtils.removeExtension(fpFiles.get(prevBulkSize+tmpStatus).getName());
-					} else {
-						NID_VAL = "";
-					}
-					
-					count = 0;
+				// otherwise, the administrators and the voters who are yet to vote are searched first. the
+				// voters who have voted already are searched only if there is no match, to detect a repeat
+				// attempt whose template is no longer held by the scanner. such an attempt, or a fingerprint
+				// not enrolled, costs a search of every user.
+				
+				if(matchNID == null) {
+					matchNID = searchBanks(store, candidates.getSearchOrder());
+				}
+				
+				if(matchNID == null) {
+					matchNID = searchBanks(store, candidates.getVoted());
+				}
+				
+				if(matchNID != null) {
+					NID_VAL = matchNID;
 				}
+			} else {
+				return "Scanning Failed!";
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+			return "Something went wrong. Try again.";
+		}
+		
+		return null;
+	}
+	
+	// identifies the user as the fpIdentify method does, but among the administrators only. used in
+	// the 1:1 mode, where the voters enter their NID value, should the NID value be left empty.
+	
+	public String fpIdentifyAdmins() {
+		NID_VAL = "";
+		
+		try {
+			if(fpManager.fpScanVoterAsync().await() == FPCommand.STATUS_ACK) {
+				CandidateSet candidates = getCandidateSet();
+				bankManager.setPinned(candidates.getAdmins());
+				
+				String matchNID = searchBanks(getTemplateStore(), candidates.getAdmins());
 				
+				if(matchNID != null) {
+					NID_VAL = matchNID;
+				}
 			} else {
-				Toast.makeText(appContext, "Scanning Failed!", Toast.LENGTH_SHORT).show();
+				return "Scanning Failed!";
 			}
 		} catch (Exception e) {
-			Toast.makeText(appContext, "Something went wrong. Try again.", Toast.LENGTH_SHORT).show();
+			e.printStackTrace();
+			return "Something went wrong. Try again.";
+		}
+		
+		return null;
+	}
+	
+	// sets the templates of the NID values provided to the scanner, bank by bank, and asks the
+	// scanner to match the live impression against each bank. only the templates that are not held
+	// by the scanner already are uploaded. returns the NID value of the match, or null if there is none.
+	
+	private String searchBanks(TemplateStore store, List<String> nids) {
+		List<String> enrolled = new ArrayList<String>(nids.size());
+		for(String nid : nids) {
+			if(store.contains(nid)) {
+				enrolled.add(nid);
+			}
+		}
+		
+		for(List<String> bank : bankManager.planBanks(enrolled)) {
+			for(TemplateBankManager.Slot slot : bankManager.prepareBank(bank)) {
+				if(!slot.resident && fpManager.fpSetTemplateAsync(store.getTemplate(slot.nid),
+						slot.id).await() == FPCommand.STATUS_ACK) {
+					bankManager.setResident(slot.id, slot.nid);
+				}
+			}
+			
+			String matchNID = verifyBank();
+			
+			if(matchNID != null) {
+				return matchNID;
+			}
 		}
+		
+		return null;
+	}
+	
+	// asks the scanner to match the live impression against the templates that it holds.
+	// returns the NID value of the template in the matching slot, or null if there is no match.
+	
+	private String verifyBank() {
+		FPCommand verifyCmd = fpManager.fpVerifyAsync();
+		
+		if(verifyCmd.await() == FPCommand.STATUS_ACK) {
+			return bankManager.getNID(verifyCmd.getValue());
+		}
+		
+		return null;
+	}
+	
+	// returns the hit and miss counts of the templates held by the scanner, as a line of text
+	
+	public String getResidencyStats() {
+		return "Scanner templates - hits: " + bankManager.getHitCount() + ", misses: "
+				+ bankManager.getMissCount() + " (" + bankManager.getHitRate() + "%)";
+	}
+	
+	// verifies the user against the NID value that they have entered (1:1), rather than searching
+	// among all the users. the record of the user is fetched from the database and only the template
+	// of that user is set to the scanner, unless it is held by the scanner already. the NID value is
+	// only accepted if the scanner matches the live impression to the slot holding that template.
+	// returns the message to be displayed should the process fail, or null once it is complete, as
+	// the fpIdentify method does. an empty NID value, or one that no user bears, is turned away
+	// before the scanner is used, as is a voter who has voted already and holds no other role.
+	
+	public String fpVerifyNID(String nid) {
+		NID_VAL = "";
+		
+		if(nid == null || nid.trim().equals("")) {
+			return "User not found! Try again.";
+		}
+		
+		nid = nid.trim();
+		
+		try {
+			User user = getDBManager().getSpecificUser(nid);
+			
+			if(user == null) {
+				return "User not found! Try again.";
+			}
+			
+			if(user.isHasVoted() && !user.isAdmin() && !user.isSAdmin()) {
+				return "You have already casted your vote!";
+			}
+			
+			TemplateStore store = getTemplateStore();
+			
+			if(!store.contains(nid)) {
+				return "No fingerprint registered for this NID.";
+			}
+			
+			if(fpManager.fpScanVoterAsync().await() == FPCommand.STATUS_ACK) {
+				if(nid.equals(searchBanks(store, Collections.singletonList(nid)))) {
+					NID_VAL = nid;
+				}
+			} else {
+				return "Scanning Failed!";
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+			return "Something went wrong. Try again.";
+		}
+		
+		return null;
+	}
+	
+	// the outcome of the identification of a user - the NID value of the match, or an empty string
+	// should there be none, along with the record of the user bearing it, if any. should the process
+	// fail, the message to be displayed is held as well.
+	
+	public static class Identification {
+		public final String nid;
+		public final User user;
+		public final String message;
+		
+		Identification(String nid, User user, String message) {
+			this.nid = nid;
+			this.user = user;
+			this.message = message;
+		}
+	}
+	
+	// identifies the user in the background, on the scanner thread - against the NID value
+	// provided (1:1), or should it be empty, among all users (1:N), or among the administrators
+	// only in the 1:1 mode - and obtains the record of the user identified. the outcome is passed
+	// to the callback provided, on the UI thread.
+	
+	public Future<Identification> identifyAsync(final String nid, DBExecutor.Callback<Identification> callback) {
+		final boolean nidMode = isNIDVerifyMode();
+		
+		return DBExecutor.scan(new Callable<Identification>() {
+			@Override
+			public Identification call() {
+				String message;
+				
+				if(!nid.equals("")) {
+					message = fpVerifyNID(nid);
+				} else if(nidMode) {
+					message = fpIdentifyAdmins();
+				} else {
+					message = fpIdentify();
+				}
+				
+				String matchNID = NID_VAL;
+				
+				return new Identification(matchNID, matchNID.equals("") ? null : getSpecificUser(matchNID), message);
+			}
+		}, callback);
+	}
+	
+	// checks if the deployment identifies the voters by their NID value (1:1), as set in the
+	// settings file, rather than by searching the fingerprint among all users (1:N)
+	
+	public boolean isNIDVerifyMode() {
+		return SVConfig.VERIFY_MODE_NID.equals(SVConfig.get(SVConfig.VERIFY_MODE, SVConfig.VERIFY_MODE_1N));
+	}
+	
+	// returns the TemplateStore object, which is opened (and memory-mapped) on first use.
+	// should the packed file not exist yet, it is built from the fpFiles directory.
+	
+	public static TemplateStore getTemplateStore() throws IOException {
+		synchronized(SVMain.class) {
+			if(templateStore == null) {
+				templateStore = new TemplateStore(new File(db_loc + fp_store_name), new File(db_loc + "fpFiles/"));
+			}
+			
+			return templateStore;
+		}
+	}
+	
+	// returns the CandidateSet object, which is loaded from the user table on first use, and
+	// kept in step with the user table afterwards. once loaded, the user cache of the database
+	// in use at the time is filled in the background in the order that the users are searched,
+	// the administrators first.
+	
+	public CandidateSet getCandidateSet() {
+		synchronized(SVMain.class) {
+			if(candidateSet == null) {
+				CandidateSet candidates = new CandidateSet();
+				getDBManager().loadCandidates(candidates);
+				candidateSet = candidates;
+				
+				final List<String> order = candidates.getSearchOrder();
+				DBExecutor.read(new Callable<Void>() {
+					@Override
+					public Void call() {
+						getDBManager().warmUserCache(order);
+						return null;
+					}
+				}, null);
+			}
+			
+			return candidateSet;
+		}
+	}
+	
+	// discards the template store and the candidates, such that they are loaded again
+	// on next use. called whenever the files in the database directory are replaced.
+	
+	private static void resetTemplates() {
+		synchronized(SVMain.class) {
+			templateStore = null;
+			candidateSet = null;
+		}
+		
+		SVConfig.reload();
+		SessionIDGenerator.discardInstance();
+		SessionLog.closeInstance();
+		
+		bankManager.invalidate();
+		SymbolCache.clear();
+		TallyEngine.discardInstance();
+		DatabaseManager.closeInstance();
 	}
 	
 	// returns the NID value that is obtained after the verification process, which points
@@ -194,85 +448,365 @@ public class SVMain {
 	}
 	
 	// prints the physical ballot, with the candidate name, file name of the symbol, the
-	// current system date and the session ID being passed to the method
+	// current system date and the session ID being passed to the method. the symbol is sent at
+	// the speed of the link, hence should not be run on the UI thread.
 	
 	public void printBallot(String cName, File symFile, String date_time, String randnum) {
 		fpManager.printBallot(cName, symFile, date_time, randnum);
 	}
 	
+	// prints the physical ballot as above, in the background, on the scanner thread, after any
+	// command sent to the Arduino before it
+	
+	public Future<Void> printBallotAsync(final String cName, final File symFile, final String date_time,
+			final String randnum) {
+		return DBExecutor.scan(new Callable<Void>() {
+			@Override
+			public Void call() {
+				printBallot(cName, symFile, date_time, randnum);
+				return null;
+			}
+		}, null);
+	}
+	
 
 	/******************************************************
 	 * 			METHODS OF DATABASEMANAGER CLASS		  *
 	 ******************************************************/
 	
-	// opens connection with the database
+	// opens connection with the database, unless it is open already. the connection is kept
+	// open for the lifetime of the application.
 	
 	public void dbOpen() {
 		try {
-			dbManager.openDatabase();
+			getDBManager().openDatabase();
 		} catch (SQLException e) {
 			Toast.makeText(appContext, e.getMessage(), Toast.LENGTH_SHORT).show();
 		}
 	}
 	
-	// obtains all data from the entity table and returns as an array list
+	// obtains all data of the entities and returns as an array list. the vote counts are read
+	// from the tally held in memory, unless it could not be loaded.
 	
 	public ArrayList<Entity> getEntityData() {
-		return dbManager.getAllEntity();
+		TallyEngine tally = getTally();
+		return tally == null ? getDBManager().getAllEntity() : tally.getEntities();
+	}
+	
+	// returns the tally shared by the application, or null if it could not be loaded
+	
+	private TallyEngine getTally() {
+		try {
+			return TallyEngine.getInstance(appContext);
+		} catch (IOException e) {
+			e.printStackTrace();
+			return null;
+		}
+	}
+	
+	// recounts the votes from the vote journal and compares the recount with the tally, which is
+	// left as it is
+	
+	public TallyEngine.Recount verifyTally() {
+		TallyEngine tally = getTally();
+		return tally == null ? new TallyEngine.Recount("Vote journal could not be opened") : tally.verify();
+	}
+	
+	// replaces the tally with the recount from the vote journal, at the request of a super
+	// administrator, and returns the outcome as a line of text
+	
+	public String rebuildTally() {
+		TallyEngine tally = getTally();
+		return tally == null ? "Vote journal could not be opened" : tally.rebuild();
 	}
 	
-	// increments the value of the vote count field, which bears the e_id that is provided
-	// into the method. the previous count is provided as well to ensure proper increment.
+	// writes the tally held in memory to the entity table. called when the voting process is
+	// disabled, at the close of polls. returns false if the tally could not be written.
 	
-	public void incrementVCount(int eID, int count) {
-		dbManager.incrementVoteCount(eID, count);
+	public boolean checkpointTally() {
+		try {
+			TallyEngine tally = getTally();
+			if(tally != null) {
+				tally.checkpoint();
+				return true;
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		
+		return false;
 	}
 	
-	// obtains all data from the user table and returns as an array list
+	// obtains the number of users in the user table
 	
-	public ArrayList<User> getUserData() {
-		return dbManager.getAllUser();
+	public int getUserCount() {
+		return getDBManager().getUserCount();
+	}
+	
+	// obtains a page of the NID values of the users, following the NID value provided
+	
+	public ArrayList<String> getUserNIDs(String after, int limit) {
+		return getDBManager().getUserNIDs(after, limit);
 	}
 	
 	// returns the User object that contains the information of the specific user
 	// bearing the NID passed into the method
 	
 	public User getSpecificUser(String NID_VAL) {
-		return dbManager.getSpecificUser(NID_VAL);
+		return getDBManager().getSpecificUser(NID_VAL);
 	}
 	
 	// adds a new tuple to the user table, with informations being in the array of string
-	// passed to it
+	// passed to it, and the template of the newly enrolled user to the template store. a NID
+	// value that is known already, to the user table or to the template store, is turned away
+	// before either is changed, such that the fingerprint of an existing user is not replaced.
+	// returns the message to be displayed should the voter not be added, or null once added.
+	
+	public String addNewVoter(String [] data, File templateFile) {
+		String nid = data[0];
+		
+		try {
+			TemplateStore store = getTemplateStore();
+			
+			if(getDBManager().getSpecificUser(nid) != null || store.contains(nid)) {
+				return "A user with this NID exists already.";
+			}
+			
+			store.append(nid, templateFile);
+			bankManager.evict(nid);
+			
+			// should the insert fail nonetheless, the template is taken back out of the store
+			
+			boolean inserted = false;
+			try {
+				inserted = getDBManager().insertVoter(data);
+			} finally {
+				if(!inserted) {
+					store.remove(nid);
+				}
+			}
+			
+			if(!inserted) {
+				return "A user with this NID exists already.";
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+			return "Fingerprint could not be stored. Try again.";
+		} catch (Exception e) {
+			e.printStackTrace();
+			return "Something went wrong. Try again.";
+		}
+		
+		getCandidateSet().add(nid, false, true, false);
+		return null;
+	}
+	
+	// imports the voter roll provided, along with the templates and the photos next to it, into
+	// the database, reporting the progress to the listener provided. the candidates are loaded
+	// again afterwards. returns the outcome of the import as text.
 	
-	public void addNewVoter(String [] data) {
-		dbManager.insertVoter(data);
+	public String importVoters(File rollFile, VoterImporter.ProgressListener listener) {
+		try {
+			VoterImporter importer = new VoterImporter(getDBManager(), getTemplateStore(), new File(db_loc + "images/"));
+			return importer.importRoll(rollFile, listener);
+		} catch (IOException e) {
+			e.printStackTrace();
+			return "Import failed: " + e.getMessage();
+		} finally {
+			synchronized(SVMain.class) {
+				candidateSet = null;
+			}
+			bankManager.invalidate();
+		}
 	}
 	
 	// removes the tuple from the user table that is represented by the NID value passed
-	// into the method. also removes the fingerprint template file, as well as the user 
-	// photo, to ensure complete removal from the system.
+	// into the method. also removes the fingerprint template from the template store, as well
+	// as the user photo, to ensure complete removal from the system. the template store is
+	// compacted once the removed templates take more space than the ones in use.
 	
 	public void removeSpecificUser(String NID_VAL) {
-		dbManager.deleteSpecificUser(NID_VAL);
+		getDBManager().deleteSpecificUser(NID_VAL);
+		getCandidateSet().remove(NID_VAL);
 		try {
-			FileUtils.forceDelete(new File(db_loc + "fpFiles/" + NID_VAL + ".dat"));
+			TemplateStore store = getTemplateStore();
+			store.remove(NID_VAL);
+			bankManager.evict(NID_VAL);
+			
+			if(store.needsCompaction()) {
+				store.compact();
+			}
+			
 			FileUtils.forceDelete(new File(db_loc + "images/" + NID_VAL + ".jpg"));
 		} catch (IOException e) {
 			e.printStackTrace();
 		}
 	}
 	
-	// set the hasVoted flag to true for a specific user in the user table, represented by
-	// the NID value passed to the method
+	// casts the vote of the voter bearing the NID value provided for the entity bearing the e_id
+	// provided, through the tally held in memory. a session ID is generated and committed along with
+	// the vote, in a single transaction, and is returned to be printed on the ballot. should the
+	// session ID have been used already, e.g. before the application was restarted, another one is
+	// generated. returns null if the vote could not be cast, e.g. if the voter has voted already.
+	// no vote is cast should the tally not be loaded, since the vote could not be journaled.
 	
-	public void sethasVotedForUser(String NID_VAL) {
-		dbManager.sethasVotedForUser(NID_VAL);
+	public String castVote(int eID, String NID_VAL) {
+		TallyEngine tally = getTally();
+		if(tally == null) {
+			return null;
+		}
+		
+		for(int attempt = 0; attempt < 10; attempt++) {
+			String sID = vManager.generateSessionID();
+			if(sID == null) {
+				return null;
+			}
+			
+			int status = tally.castVote(eID, NID_VAL, sID);
+			
+			if(status == DatabaseManager.VOTE_CAST) {
+				getCandidateSet().markVoted(NID_VAL);
+				logSessionID(sID);
+				return sID;
+			} else if(status != DatabaseManager.VOTE_DUPLICATE_SID) {
+				return null;
+			}
+		}
+		
+		return null;
 	}
 	
-	// close connection with the database
+	// appends the session ID of a vote cast to the session ID log. the session ID is stored by
+	// the database along with the vote already, hence the vote stands should the log fail.
 	
-	public void dbClose() {
-		dbManager.close();
+	private void logSessionID(String sID) {
+		try {
+			SessionLog.getInstance().append(sID);
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+	
+	// writes the session IDs in the session ID log to the text file provided, one per line, and
+	// returns the outcome as text
+	
+	public String exportSessionIDs(File outFile) {
+		try {
+			return "Exported " + SessionLog.getInstance().exportText(outFile) + " session IDs to " + outFile.getName();
+		} catch (IOException e) {
+			e.printStackTrace();
+			return "Session IDs could not be exported: " + e.getMessage();
+		}
+	}
+	
+	/******************************************************
+	 * 		ASYNC METHODS OF DATABASEMANAGER CLASS		  *
+	 ******************************************************/
+	
+	// the methods below run the methods above through the DBExecutor class, away from the UI
+	// thread. the queries are run on the reader threads and the updates on the writer thread,
+	// and the result is passed to the callback provided on the UI thread.
+	
+	public Future<ArrayList<Entity>> getEntityDataAsync(DBExecutor.Callback<ArrayList<Entity>> callback) {
+		return DBExecutor.read(new Callable<ArrayList<Entity>>() {
+			@Override
+			public ArrayList<Entity> call() {
+				return getEntityData();
+			}
+		}, callback);
+	}
+	
+	public Future<User> getSpecificUserAsync(final String NID_VAL, DBExecutor.Callback<User> callback) {
+		return DBExecutor.read(new Callable<User>() {
+			@Override
+			public User call() {
+				return getSpecificUser(NID_VAL);
+			}
+		}, callback);
+	}
+	
+	public Future<String> getQueryPlanStatusAsync(DBExecutor.Callback<String> callback) {
+		return DBExecutor.read(new Callable<String>() {
+			@Override
+			public String call() {
+				return getQueryPlanStatus();
+			}
+		}, callback);
+	}
+	
+	public Future<TallyEngine.Recount> verifyTallyAsync(DBExecutor.Callback<TallyEngine.Recount> callback) {
+		return DBExecutor.read(new Callable<TallyEngine.Recount>() {
+			@Override
+			public TallyEngine.Recount call() {
+				return verifyTally();
+			}
+		}, callback);
+	}
+	
+	public Future<String> rebuildTallyAsync(DBExecutor.Callback<String> callback) {
+		return DBExecutor.write(new Callable<String>() {
+			@Override
+			public String call() {
+				return rebuildTally();
+			}
+		}, callback);
+	}
+	
+	public Future<Boolean> checkpointTallyAsync(DBExecutor.Callback<Boolean> callback) {
+		return DBExecutor.write(new Callable<Boolean>() {
+			@Override
+			public Boolean call() {
+				return checkpointTally();
+			}
+		}, callback);
+	}
+	
+	public Future<String> exportSessionIDsAsync(final File outFile, DBExecutor.Callback<String> callback) {
+		return DBExecutor.read(new Callable<String>() {
+			@Override
+			public String call() {
+				return exportSessionIDs(outFile);
+			}
+		}, callback);
+	}
+	
+	public Future<String> castVoteAsync(final int eID, final String NID_VAL, DBExecutor.Callback<String> callback) {
+		return DBExecutor.write(new Callable<String>() {
+			@Override
+			public String call() {
+				return castVote(eID, NID_VAL);
+			}
+		}, callback);
+	}
+	
+	public Future<String> addNewVoterAsync(final String [] data, final File templateFile,
+			DBExecutor.Callback<String> callback) {
+		return DBExecutor.write(new Callable<String>() {
+			@Override
+			public String call() {
+				return addNewVoter(data, templateFile);
+			}
+		}, callback);
+	}
+	
+	public Future<String> importVotersAsync(final File rollFile, final VoterImporter.ProgressListener listener,
+			DBExecutor.Callback<String> callback) {
+		return DBExecutor.write(new Callable<String>() {
+			@Override
+			public String call() {
+				return importVoters(rollFile, listener);
+			}
+		}, callback);
+	}
+	
+	public Future<Void> removeSpecificUserAsync(final String NID_VAL, DBExecutor.Callback<Void> callback) {
+		return DBExecutor.write(new Callable<Void>() {
+			@Override
+			public Void call() {
+				removeSpecificUser(NID_VAL);
+				return null;
+			}
+		}, callback);
 	}
 	
 	/******************************************************
@@ -286,9 +820,9 @@ public class SVMain {
 	}
 	
 	// checks if the files required for the application are in place. checks if the
-	// database file exists, along with the folder for the fingerprint templates, the
-	// user images, and the entity images. returns false if any one of the directory or
-	// file does not exist. returns true if all exists.
+	// database file exists, along with the fingerprint templates (either the packed file or
+	// the folder it is built from), the user images, and the entity images. returns false if
+	// any one of the directory or file does not exist. returns true if all exists.
 	
 	public boolean checkFiles() {
 		boolean retVal = false;
@@ -296,10 +830,11 @@ public class SVMain {
 		File dbLoc = new File(db_loc);
 		File dbFile = new File(db_loc + db_name);
 		File fpDatDir = new File(db_loc + "fpFiles/");
+		File fpStoreFile = new File(db_loc + fp_store_name);
 		File imgDir = new File(db_loc + "images/");
 		File eImgDir = new File(db_loc + "eImages/");
 		
-		if(dbLoc.exists() && dbFile.exists() && fpDatDir.exists()
+		if(dbLoc.exists() && dbFile.exists() && (fpStoreFile.exists() || fpDatDir.exists())
 				&& imgDir.exists() && eImgDir.exists()) {
 			retVal = true;
 		}
@@ -323,7 +858,23 @@ public class SVMain {
 			if(zipSrc.isEncrypted()) {
 				zipSrc.setPassword(password);
 			}
+			
+			// the connection is closed before the database file is replaced, and the write-ahead log
+			// is removed along with it, such that it is not replayed over the extracted database
+			
+			TallyEngine.discardInstance();
+			DatabaseManager.closeInstance();
+			FileUtils.deleteQuietly(new File(db_loc + db_name + "-wal"));
+			FileUtils.deleteQuietly(new File(db_loc + db_name + "-shm"));
+			
 			zipSrc.extractAll(db_loc);
+			
+			// the packed template file is built again from the fingerprint files that are extracted
+			
+			if(new File(db_loc + "fpFiles/").exists()) {
+				FileUtils.deleteQuietly(new File(db_loc + fp_store_name));
+			}
+			resetTemplates();
 		} catch (ZipException ze) {
 			return false;
 		}
@@ -335,6 +886,7 @@ public class SVMain {
 	
 	public void removeDB() {
 		File dbLoc = new File(db_loc);
+		resetTemplates();
 		try {
 			FileUtils.deleteDirectory(dbLoc);
 		} catch (IOException e) {
@@ -342,15 +894,6 @@ public class SVMain {
 		}
 	}
 	
-	// obtains a list of the fingerprint files and returns as output
-	
-	public List<File> getFpFiles() {
-		File dir = new File(db_loc + "fpFiles/");
-		File[] fpFilesArr = dir.listFiles();
-		List<File> fpFilesList = Arrays.asList(fpFilesArr);
-		return fpFilesList;
-	}
-	
 	// converts user image files to bitmap object, using the NID value provided, and
 	// return it for further use
 	
@@ -0,0 +1,322 @@
+/*************************************************************
+ * SerialTransport Class
+ * Sends blocks of data, such as the template files and the entity symbols, over the serial
+ * connection with the Arduino. In the raw mode, the data is written in chunks that are paced
+ * at the speed of the link, out of a single buffer. In the framed mode, each chunk is sent as
+ * a frame with a sequence number and a CRC, which the Arduino acknowledges along with the
+ * number of frames it can take in (credits). Lost or corrupt frames are sent again.
+ * A part of the SmartVote application, developed by ZedApps.
+ *
+ * @author Shamah M Zoha
+ * @email shamah1992@gmail.com
+ * @github bitbucket.org/smzoha/
+ ************************************************************/
+
+package com.zedapps.smartvote;
+
+import com.physicaloid.lib.Physicaloid;
+
+public class SerialTransport {
+	
+	// constants defining the frame layout - the start byte, the sequence number, the length of
+	// the payload, the payload and the CRC-16 (CCITT) of the sequence number, length and payload
+	
+	public static final byte FRAME_START = 0x7E;
+	public static final byte FRAME_ACK = 0x06;	// followed by the sequence number and the credits
+	public static final byte FRAME_NAK = 0x15;	// followed by the sequence number that is expected
+	
+	private static final int FRAME_OVERHEAD = 5;
+	private static final int RAW_CHUNK = 10;	// the chunk size in the raw mode
+	private static final int MIN_CHUNK = 8;		// the chunk sizes in the framed mode, which fit the
+	private static final int MAX_CHUNK = 56;	// 64 byte receive buffer of the Arduino
+	private static final int MAX_WINDOW = 4;	// the maximum number of frames awaiting acknowledgement
+	private static final int MAX_RETRIES = 5;	// the number of times the window is sent again before failing
+	
+	private final Physicaloid serialDevice; // the serial connection with the Arduino
+	private final boolean framed;			// flag that indicates if the framed mode is used
+	private final int baudRate;				// the baud rate of the link, used to pace the raw mode
+	
+	private final byte[] frameBuf = new byte[MAX_CHUNK + FRAME_OVERHEAD]; // the buffer each chunk is written from
+	
+	private int chunkSize = MIN_CHUNK;	// the current chunk size of the framed mode
+	private long rttAvg = 0;			// the smoothed round trip time of a frame, in milliseconds
+	
+	// the state of the frames awaiting acknowledgement, guarded by the ackLock object
+	
+	private final Object ackLock = new Object();
+	private final int[] inflightOff = new int[MAX_WINDOW];
+	private final int[] inflightLen = new int[MAX_WINDOW];
+	private final long[] inflightSent = new long[MAX_WINDOW];
+	private int inflightCount = 0;
+	private int baseSeq = 0;	// the sequence number of the oldest frame awaiting acknowledgement
+	private int credits = 1;	// the number of frames the Arduino can take in
+	private int ackedSeq = -1;	// the latest sequence number acknowledged, not yet processed
+	private boolean nakReceived = false;
+	
+	private volatile boolean inTransfer = false;
+	
+	// the state of the parser of the acknowledgement bytes
+	
+	private int rxState = 0;
+	private byte rxType;
+	private int rxSeq;
+	
+	// constructor that takes in the serial connection, the mode and the baud rate of the link
+	
+	public SerialTransport(Physicaloid serialDevice, boolean framed, int baudRate) {
+		this.serialDevice = serialDevice;
+		this.framed = framed;
+		this.baudRate = baudRate;
+	}
+	
+	/******************************************************
+	 * 				GETTER & SETTER METHODS				  *
+	 ******************************************************/
+	
+	public boolean isFramed() {
+		return framed;
+	}
+	
+	// checks if a framed transfer is in progress, in which case the bytes received from the Arduino
+	// are to be passed to the onReceive method
+	
+	public boolean isInTransfer() {
+		return inTransfer;
+	}
+	
+	public int getChunkSize() {
+		return framed ? chunkSize : RAW_CHUNK;
+	}
+	
+	/******************************************************
+	 * 			END OF GETTER & SETTER METHODS			  *
+	 ******************************************************/
+	
+	// sends the data provided in the mode of the transport. returns false if the framed transfer
+	// failed, i.e. the frames were not acknowledged after the retries.
+	
+	public boolean send(byte[] data) {
+		if(framed) {
+			return sendFramed(data);
+		}
+		
+		sendRaw(data);
+		return true;
+	}
+	
+	// writes the data in chunks out of the frame buffer, such that no array is allocated per chunk.
+	// the writes are paced at the speed of the link (10 bits per byte), sleeping only when ahead of it.
+	
+	private void sendRaw(byte[] data) {
+		long start = System.nanoTime();
+		long nanosPerByte = 10000000000L / baudRate;
+		
+		for(int off = 0; off < data.length; off += RAW_CHUNK) {
+			int len = Math.min(RAW_CHUNK, data.length - off);
+			System.arraycopy(data, off, frameBuf, 0, len);
+			serialDevice.write(frameBuf, len);
+			
+			long aheadMs = (start + (off + len) * nanosPerByte - System.nanoTime()) / 1000000;
+			if(aheadMs > 0) {
+				try {
+					Thread.sleep(aheadMs);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return;
+				}
+			}
+		}
+	}
+	
+	// sends the data as frames, keeping as many frames awaiting acknowledgement as the credits allow.
+	// should a frame be reported corrupt, or not be acknowledged in time, the frames are sent again
+	// from the oldest one awaiting acknowledgement, with the chunk size halved. each clean
+	// acknowledgement grows the chunk size, as long as the round trip stays within the time the
+	// frame takes on the link. the retries count the failures since the last frame acknowledged,
+	// such that a long transfer is only failed should it stop making progress.
+	
+	private boolean sendFramed(byte[] data) {
+		synchronized(ackLock) {
+			inflightCount = 0;
+			credits = 1;
+			ackedSeq = -1;
+			nakReceived = false;
+			rxState = 0;
+			inTransfer = true;
+		}
+		
+		int nextOff = 0, nextSeq = baseSeq, retries = 0;
+		
+		try {
+			while(true) {
+				synchronized(ackLock) {
+					if(processAcks()) {
+						retries = 0;
+					}
+					
+					if(nakReceived) {
+						nakReceived = false;
+						if(++retries > MAX_RETRIES) {
+							return false;
+						}
+						
+						chunkSize = Math.max(MIN_CHUNK, chunkSize / 2);
+						nextOff = inflightCount > 0 ? inflightOff[0] : nextOff;
+						nextSeq = baseSeq;
+						inflightCount = 0;
+					}
+					
+					if(inflightCount == 0 && nextOff >= data.length) {
+						return true;
+					}
+					
+					while(inflightCount < Math.min(credits, MAX_WINDOW) && nextOff < data.length) {
+						int len = Math.min(chunkSize, data.length - nextOff);
+						writeFrame(nextSeq, data, nextOff, len);
+						
+						inflightOff[inflightCount] = nextOff;
+						inflightLen[inflightCount] = len;
+						inflightSent[inflightCount] = System.currentTimeMillis();
+						inflightCount++;
+						
+						nextOff += len;
+						nextSeq = (nextSeq + 1) & 0xFF;
+					}
+					
+					long waitMs = ackTimeout();
+					long deadline = System.currentTimeMillis() + waitMs;
+					
+					while(ackedSeq < 0 && !nakReceived) {
+						long remaining = deadline - System.currentTimeMillis();
+						if(remaining <= 0) {
+							nakReceived = true; // treated as a lost frame
+							break;
+						}
+						
+						try {
+							ackLock.wait(remaining);
+						} catch (InterruptedException e) {
+							Thread.currentThread().interrupt();
+							return false;
+						}
+					}
+				}
+			}
+		} finally {
+			inTransfer = false;
+		}
+	}
+	
+	// removes the frames acknowledged so far from the window, and adapts the chunk size to the
+	// round trip time measured on the oldest of them. must be called while holding the ackLock.
+	// returns true if any frame was acknowledged.
+	
+	private boolean processAcks() {
+		if(ackedSeq < 0) {
+			return false;
+		}
+		
+		int acked = ((ackedSeq - baseSeq) & 0xFF) + 1;
+		ackedSeq = -1;
+		
+		if(acked > inflightCount) {
+			return false; // a stale acknowledgement, outside the window
+		}
+		
+		long rtt = System.currentTimeMillis() - inflightSent[0];
+		rttAvg = rttAvg == 0 ? rtt : (rttAvg * 7 + rtt) / 8;
+		
+		if(rttAvg <= linkTime(chunkSize + FRAME_OVERHEAD) * 2) {
+			chunkSize = Math.min(MAX_CHUNK, chunkSize + MIN_CHUNK);
+		}
+		
+		System.arraycopy(inflightOff, acked, inflightOff, 0, inflightCount - acked);
+		System.arraycopy(inflightLen, acked, inflightLen, 0, inflightCount - acked);
+		System.arraycopy(inflightSent, acked, inflightSent, 0, inflightCount - acked);
+		inflightCount -= acked;
+		baseSeq = (baseSeq + acked) & 0xFF;
+		return true;
+	}
+	
+	// writes a single frame out of the frame buffer
+	
+	private void writeFrame(int seq, byte[] data, int off, int len) {
+		frameBuf[0] = FRAME_START;
+		frameBuf[1] = (byte) seq;
+		frameBuf[2] = (byte) len;
+		System.arraycopy(data, off, frameBuf, 3, len);
+		
+		int crc = crc16(frameBuf, 1, len + 2);
+		frameBuf[len + 3] = (byte) (crc >> 8);
+		frameBuf[len + 4] = (byte) crc;
+		
+		serialDevice.write(frameBuf, len + FRAME_OVERHEAD);
+	}
+	
+	// handles the bytes received from the Arduino during a framed transfer. the acknowledgement
+	// (type, sequence number, credits) and the negative acknowledgement (type, sequence number)
+	// are parsed byte by byte, such that they may arrive split over several reads.
+	
+	public void onReceive(byte[] buffer, int off, int len) {
+		synchronized(ackLock) {
+			for(int i = off; i < off + len; i++) {
+				byte b = buffer[i];
+				
+				switch(rxState) {
+				case 0:
+					if(b == FRAME_ACK || b == FRAME_NAK) {
+						rxType = b;
+						rxState = 1;
+					}
+					break;
+				case 1:
+					rxSeq = b & 0xFF;
+					if(rxType == FRAME_NAK) {
+						nakReceived = true;
+						rxState = 0;
+						ackLock.notifyAll();
+					} else {
+						rxState = 2;
+					}
+					break;
+				default:
+					ackedSeq = rxSeq;
+					credits = Math.max(1, b & 0xFF);
+					rxState = 0;
+					ackLock.notifyAll();
+					break;
+				}
+			}
+		}
+	}
+	
+	// returns the time to wait for an acknowledgement - four times the smoothed round trip time,
+	// but no less than the time the window takes on the link, plus a margin
+	
+	private long ackTimeout() {
+		long linkMs = linkTime((chunkSize + FRAME_OVERHEAD) * Math.min(credits, MAX_WINDOW));
+		return Math.max(rttAvg * 4, linkMs) + 100;
+	}
+	
+	// returns the time, in milliseconds, that the number of bytes provided take on the link
+	
+	private long linkTime(int bytes) {
+		return (bytes * 10000L) / baudRate;
+	}
+	
+	// computes the CRC-16 (CCITT, polynomial 0x1021, initial value 0xFFFF) of the bytes provided
+	
+	public static int crc16(byte[] data, int off, int len) {
+		int crc = 0xFFFF;
+		
+		for(int i = off; i < off + len; i++) {
+			crc ^= (data[i] & 0xFF) << 8;
+			
+			for(int bit = 0; bit < 8; bit++) {
+				crc = (crc & 0x8000) != 0 ? (crc << 1) ^ 0x1021 : crc << 1;
+			}
+		}
+		
+		return crc & 0xFFFF;
+	}
+}
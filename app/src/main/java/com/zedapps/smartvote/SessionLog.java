@@ -0,0 +1,331 @@
+/*************************************************************
+ * SessionLog Class
+ * The append-only log of the session IDs printed on the ballots. Each session ID is written as
+ * a record of a fixed size - the session ID, the time it was issued and a CRC32 checksum - into
+ * a file which is preallocated in blocks, such that appending a record only changes the data of
+ * the file. How often the log is synced to the storage is set by the sid.sync setting. The log is
+ * read back with a single pass over a memory-mapped view of the file, and can be exported as a
+ * text file, with a session ID per line.
+ * A part of the SmartVote application, developed by ZedApps.
+ *
+ * @author Shamah M Zoha
+ * @email shamah1992@gmail.com
+ * @github bitbucket.org/smzoha/
+ ************************************************************/
+
+package com.zedapps.smartvote;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.CRC32;
+
+import android.os.Environment;
+
+public class SessionLog {
+	
+	// the interface of the objects that the session IDs are passed to as the log is read
+	
+	public interface Visitor {
+		void onSessionID(long sessionID, long time);
+	}
+	
+	// constants that contain the paths to the log, to the file the log is built in, and to the
+	// files that held the session IDs before it - the text file, and the binary file of 8 bytes
+	// per session ID. the latter are read into the log when it is created, and removed once the
+	// log is in place.
+	
+	private static final String dbDir = Environment.getDataDirectory().getPath() + "/data/com.zedapps.smartvote/databases/";
+	private static final File logFile = new File(dbDir + "sessionid.log");
+	private static final File tmpFile = new File(dbDir + "sessionid.log.tmp");
+	private static final File listFile = new File(dbDir + "sessionid.txt");
+	private static final File idFile = new File(dbDir + "sessionid.bin");
+	
+	private static final int MAGIC = 0x5356534C;	// "SVSL", which the log begins with
+	private static final int VERSION = 1;
+	private static final int HEADER = 16;			// the length of the header - the magic, the version and the record size
+	private static final int RECORD = 16;			// the length of a record - the session ID, the time and the checksum
+	private static final int BLOCK = RECORD * 4096;	// the number of bytes preallocated at a time
+	private static final long ID_RANGE = 1000000000000000L; // the number of 15 digit session IDs
+	
+	private static SessionLog instance; // the log shared by the application
+	
+	private final RandomAccessFile file;	// the log file
+	private final FileChannel channel;		// the channel of the log file, which is written and synced
+	private final int syncEvery;			// the number of records between syncs, or 0 to leave it to the system
+	private final CRC32 crc = new CRC32();	// the checksum of the record being written
+	private final ByteBuffer record = ByteBuffer.allocate(RECORD); // the record being written
+	
+	private long count;			// the number of records in the log
+	
+	// constructor which opens the log, creating it should it not exist, and finds its end
+	
+	private SessionLog(int syncEvery) throws IOException {
+		this.syncEvery = syncEvery;
+		
+		if(!logFile.exists()) {
+			create();
+			
+			listFile.delete();
+			idFile.delete();
+		}
+		
+		file = new RandomAccessFile(logFile, "rw");
+		channel = file.getChannel();
+		count = scan(null);
+	}
+	
+	// creates the log, holding the session IDs of the files used before it, if any. the log is
+	// written aside, synced and renamed into place, such that the files used before it are still
+	// there to be read again should the application stop before the log is complete.
+	
+	private void create() throws IOException {
+		RandomAccessFile tmp = new RandomAccessFile(tmpFile, "rw");
+		
+		try {
+			tmp.setLength(0);
+			FileChannel ch = tmp.getChannel();
+			
+			ByteBuffer header = ByteBuffer.allocate(HEADER);
+			header.putInt(MAGIC).putInt(VERSION).putInt(RECORD).putInt(0);
+			header.flip();
+			ch.write(header, 0);
+			
+			long records = importLegacy(ch);
+			tmp.setLength(HEADER + (records * RECORD / BLOCK + 1) * BLOCK);
+			ch.force(true);
+		} finally {
+			tmp.close();
+		}
+		
+		if(!tmpFile.renameTo(logFile)) {
+			throw new IOException("Failed to create " + logFile.getName());
+		}
+	}
+	
+	// returns the log shared by the application, which is opened on first use
+	
+	public static synchronized SessionLog getInstance() throws IOException {
+		if(instance == null) {
+			instance = new SessionLog(Math.max(0, SVConfig.getInt(SVConfig.SID_SYNC, 1)));
+		}
+		
+		return instance;
+	}
+	
+	// syncs and closes the log shared by the application, such that it is opened again on next
+	// use. called whenever the files in the database directory are replaced or removed.
+	
+	public static synchronized void closeInstance() {
+		if(instance != null) {
+			instance.close();
+			instance = null;
+		}
+	}
+	
+	// syncs and closes the log file
+	
+	private synchronized void close() {
+		try {
+			channel.force(false);
+			file.close();
+		} catch(IOException e) {
+			e.printStackTrace();
+		}
+	}
+	
+	// returns the number of session IDs in the log
+	
+	public synchronized long getCount() {
+		return count;
+	}
+	
+	// reads the records of the log through a memory-mapped view of the file, passing each to the
+	// visitor provided, if any. returns the number of records that are intact - the log ends at
+	// the first record whose checksum does not match, e.g. the preallocated part of the file.
+	
+	private long scan(Visitor visitor) throws IOException {
+		long size = channel.size();
+		if(size < HEADER) {
+			throw new IOException("Invalid session ID log: " + logFile);
+		}
+		
+		MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+		if(map.getInt(0) != MAGIC || map.getInt(4) != VERSION || map.getInt(8) != RECORD) {
+			throw new IOException("Invalid session ID log: " + logFile);
+		}
+		
+		CRC32 check = new CRC32();
+		byte[] body = new byte[RECORD - 4];
+		long records = 0;
+		
+		map.position(HEADER);
+		while(map.remaining() >= RECORD) {
+			int start = map.position();
+			map.get(body);
+			
+			check.reset();
+			check.update(body, 0, body.length);
+			
+			if((int) check.getValue() != map.getInt()) {
+				break;
+			}
+			
+			if(visitor != null) {
+				visitor.onSessionID(map.getLong(start), (map.getInt(start + 8) & 0xFFFFFFFFL) * 1000);
+			}
+			records++;
+		}
+		
+		return records;
+	}
+	
+	// reads the session IDs held by the files used before the log, if any, into the log being
+	// created, through the channel provided. returns the number of session IDs read.
+	
+	private long importLegacy(FileChannel ch) throws IOException {
+		long records = 0;
+		
+		if(idFile.exists()) {
+			DataInputStream in = new DataInputStream(new FileInputStream(idFile));
+			
+			try {
+				in.skipBytes(8);
+				while(true) {
+					writeRecord(ch, HEADER + records * RECORD, in.readLong(), 0);
+					records++;
+				}
+			} catch(EOFException e) {
+				// the end of the file has been reached
+			} finally {
+				in.close();
+			}
+		} else if(listFile.exists()) {
+			BufferedReader br = new BufferedReader(new FileReader(listFile));
+			
+			try {
+				String line;
+				while((line = br.readLine()) != null) {
+					long sessionID = parseSID(line.trim());
+					if(sessionID >= 0) {
+						writeRecord(ch, HEADER + records * RECORD, sessionID, 0);
+						records++;
+					}
+				}
+			} finally {
+				br.close();
+			}
+		}
+		
+		return records;
+	}
+	
+	// appends the session ID provided to the log, and syncs the log as set by the sid.sync
+	// setting. returns false if the session ID is not a 15 digit number.
+	
+	public synchronized boolean append(String sessionID) throws IOException {
+		long id = parseSID(sessionID);
+		if(id < 0) {
+			return false;
+		}
+		
+		write(id, System.currentTimeMillis());
+		
+		if(syncEvery > 0 && count % syncEvery == 0) {
+			channel.force(false);
+		}
+		
+		return true;
+	}
+	
+	// writes the record of the session ID provided after the last record, preallocating another
+	// block of the file should it be full
+	
+	private void write(long sessionID, long time) throws IOException {
+		long offset = HEADER + count * RECORD;
+		
+		if(offset + RECORD > file.length()) {
+			file.setLength(file.length() + BLOCK);
+			channel.force(true);
+		}
+		
+		writeRecord(channel, offset, sessionID, time);
+		count++;
+	}
+	
+	// writes the record of the session ID provided, along with its checksum, to the channel
+	// provided at the offset provided
+	
+	private void writeRecord(FileChannel ch, long offset, long sessionID, long time) throws IOException {
+		record.clear();
+		record.putLong(sessionID);
+		record.putInt((int) (time / 1000));
+		
+		crc.reset();
+		crc.update(record.array(), 0, RECORD - 4);
+		record.putInt((int) crc.getValue());
+		record.flip();
+		
+		while(record.hasRemaining()) {
+			ch.write(record, offset + record.position());
+		}
+	}
+	
+	// writes the session IDs in the log to the text file provided, one per line as printed on the
+	// ballots. returns the number of session IDs written.
+	
+	public long exportText(File out) throws IOException {
+		final BufferedWriter bw = new BufferedWriter(new FileWriter(out), 1 << 16);
+		final IOException[] failure = new IOException[1];
+		long written;
+		
+		try {
+			synchronized(this) {
+				written = scan(new Visitor() {
+					@Override
+					public void onSessionID(long sessionID, long time) {
+						try {
+							bw.write(String.format("%015d", sessionID));
+							bw.newLine();
+						} catch(IOException e) {
+							failure[0] = e;
+						}
+					}
+				});
+			}
+		} finally {
+			bw.close();
+		}
+		
+		if(failure[0] != null) {
+			throw failure[0];
+		}
+		
+		return written;
+	}
+	
+	// returns the session ID provided as a long, or -1 if it is not a 15 digit number
+	
+	static long parseSID(String sessionID) {
+		if(sessionID == null || sessionID.length() != 15) {
+			return -1;
+		}
+		
+		try {
+			long id = Long.parseLong(sessionID);
+			return id >= 0 && id < ID_RANGE ? id : -1;
+		} catch(NumberFormatException e) {
+			return -1;
+		}
+	}
+}
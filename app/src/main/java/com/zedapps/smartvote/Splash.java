@@ -15,7 +15,6 @@ import com.zedapps.smartvote.modules.VoteManager;
 
 import android.app.Activity;
 import android.content.Intent;
-import android.content.IntentFilter;
 import android.os.Bundle;
 
 public class Splash extends Activity {
@@ -28,21 +27,18 @@ public class Splash extends Activity {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_splash);
         
-        // the VoteManager object is instantiated on the first run
+        // the VoteManager object held for the process is obtained, which is instantiated on
+        // the first run
         
-        vManager = new VoteManager();
+        vManager = VoteManager.getInstance();
         
         // instantiate object of the SVMain class and bind the vManager object to it
         
         svmainObj = new SVMain(getApplicationContext());
         svmainObj.setVManager(vManager);
         
-        // register broadcast receiver to seek permission for USB connectivity from user
-        
-        registerReceiver(svmainObj.fpManager.br, 
-        		new IntentFilter(FPManager.ACTION_USB_PERMISSION));
-  
-        // call method to request permission
+        // call method to request permission for USB connectivity from user. the broadcast receiver
+        // that handles the permission is registered by the application.
         
         svmainObj.fpPerm();
         
@@ -64,11 +60,9 @@ public class Splash extends Activity {
     				
     				// if the database file and the other additional data files are not available, the user is
     				// redirected to the LoadData activity, to ensure the load of the database and files. the vManager
-    				// object is passed to maintain concurrency and the broadcast receiver is unregistered for smooth transition.
+    				// object is passed to maintain concurrency.
     				
     		        if(!svmainObj.checkFiles()) {
-    		        	unregisterReceiver(svmainObj.fpManager.br);
-    		        	svmainObj.fpClose();
     		        	Intent toLoadData = new Intent(Splash.this, LoadData.class);
     		        	toLoadData.putExtra("vManager", vManager);
     		        	startActivity(toLoadData);
@@ -76,11 +70,9 @@ public class Splash extends Activity {
     		        	
     		        	// if the database file and the other additional data files are available, the user is taken to the
     		        	// Intro activity, in which the instructions are provided. the vManager object is passed to maintain 
-    		        	// concurrency and the broadcast receiver is unregistered for smooth transition.
+    		        	// concurrency.
     		        	
     		        } else {
-    		        	unregisterReceiver(svmainObj.fpManager.br);
-    		        	svmainObj.fpClose();
     			        Intent toIntro = new Intent(Splash.this, Intro.class);
     			        toIntro.putExtra("vManager", vManager);
     			        startActivity(toIntro);
@@ -0,0 +1,85 @@
+/*************************************************************
+ * SymbolCache Class
+ * Holds the entity symbols displayed on the ballot, decoded to the size they are displayed at,
+ * such that each symbol is decoded once rather than each time its row is displayed. The symbols
+ * are shared by the whole application and bounded by the memory they take up, the symbols used
+ * least recently being removed first. A symbol is decoded at a fraction of the resolution of
+ * its file, close to the size displayed, rather than at full size.
+ * A part of the SmartVote application, developed by ZedApps.
+ *
+ * @author Shamah M Zoha
+ * @email shamah1992@gmail.com
+ * @github bitbucket.org/smzoha/
+ ************************************************************/
+
+package com.zedapps.smartvote;
+
+import java.io.File;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.util.LruCache;
+
+public class SymbolCache {
+	
+	// the symbols, by the path of their file, bounded to an eighth of the memory available to the
+	// application, in kilobytes
+	
+	private static final LruCache<String, Bitmap> symbols = new LruCache<String, Bitmap>(
+			(int) (Runtime.getRuntime().maxMemory() / 1024 / 8)) {
+		@Override
+		protected int sizeOf(String path, Bitmap symbol) {
+			return symbol.getByteCount() / 1024;
+		}
+	};
+	
+	// returns the symbol bearing the path provided, or null if it has not been decoded yet
+	
+	public static Bitmap get(String path) {
+		return symbols.get(path);
+	}
+	
+	// decodes the symbol bearing the path provided, to at least the width and the height provided,
+	// and holds it. returns null if the file does not exist or cannot be decoded. should not be run
+	// on the UI thread.
+	
+	public static Bitmap load(String path, int width, int height) {
+		Bitmap symbol = symbols.get(path);
+		if(symbol != null) {
+			return symbol;
+		}
+		
+		File imgFile = new File(path);
+		if(!imgFile.exists()) {
+			return null;
+		}
+		
+		// the size of the image is read first, without decoding it, to find the largest power of
+		// two that the image can be scaled down by while still covering the size displayed
+		
+		BitmapFactory.Options options = new BitmapFactory.Options();
+		options.inJustDecodeBounds = true;
+		BitmapFactory.decodeFile(imgFile.getAbsolutePath(), options);
+		
+		int sampleSize = 1;
+		while(options.outWidth / (sampleSize * 2) >= width && options.outHeight / (sampleSize * 2) >= height) {
+			sampleSize *= 2;
+		}
+		
+		options.inJustDecodeBounds = false;
+		options.inSampleSize = sampleSize;
+		symbol = BitmapFactory.decodeFile(imgFile.getAbsolutePath(), options);
+		
+		if(symbol != null) {
+			symbols.put(path, symbol);
+		}
+		
+		return symbol;
+	}
+	
+	// discards the symbols held, e.g. whenever the files in the database directory are replaced
+	
+	public static void clear() {
+		symbols.evictAll();
+	}
+}
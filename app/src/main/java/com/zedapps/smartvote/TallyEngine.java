@@ -0,0 +1,320 @@
+/*************************************************************
+ * TallyEngine Class
+ * Holds the vote tally in memory, as a counter for each entity, such that a vote only sets the
+ * hasVoted flag of the voter in the database and appends a record to the vote journal, rather
+ * than updating the entity table as well. The counts are written to the entity table at a
+ * checkpoint - after a number of votes, or when the voting process is disabled. Should the
+ * application stop before that, the votes journaled since the last checkpoint are replayed as
+ * the tally is loaded again, such that no committed vote is lost. The journal is kept for the
+ * whole election, such that the tally can be recounted from it at any time - the vote counts
+ * that the entity table held before the journal was started, which are stored as the base of
+ * the tally, plus the votes journaled. The recount only reports; the tally is only replaced by
+ * it through the rebuild method, at the request of an administrator.
+ * A part of the SmartVote application, developed by ZedApps.
+ *
+ * @author Shamah M Zoha
+ * @email shamah1992@gmail.com
+ * @github bitbucket.org/smzoha/
+ ************************************************************/
+
+package com.zedapps.smartvote;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import android.content.Context;
+import android.os.Environment;
+
+import com.zedapps.smartvote.modules.Entity;
+
+public class TallyEngine {
+	
+	// constant that contains the path to the directory of the vote journal
+	
+	private static final File journalDir = new File(Environment.getDataDirectory().getAbsolutePath() +
+			"/data/com.zedapps.smartvote/databases/journal/");
+	
+	private static TallyEngine instance; // the instance shared by the application
+	
+	private final DatabaseManager dbManager;	// the database that the tally is checkpointed to
+	private final ArrayList<Entity> entities;	// the entities, as read from the database
+	private final LinkedHashMap<Integer, AtomicInteger> tally = new LinkedHashMap<Integer, AtomicInteger>(); // the vote count of each e_id
+	private final HashMap<Integer, Integer> base;	// the vote count of each e_id not in the journal
+	private final int checkpointVotes;			// the number of votes between checkpoints
+	
+	private final VoteJournal journal = new VoteJournal(journalDir); // the record of every vote cast
+	private int pending;					// the number of votes cast since the last checkpoint
+	
+	// constructor which loads the tally from the database provided, and replays the journal
+	
+	private TallyEngine(DatabaseManager dbManager) throws IOException {
+		this.dbManager = dbManager;
+		checkpointVotes = Math.max(1, SVConfig.getInt(SVConfig.TALLY_CHECKPOINT, 25));
+		
+		entities = dbManager.getAllEntity();
+		for(Entity entity : entities) {
+			tally.put(entity.geteID(), new AtomicInteger(entity.getvCount()));
+		}
+		
+		// the votes journaled after the checkpoint are added to the tally. a vote is only counted
+		// if its session ID has been stored, i.e. if its transaction was committed - the record is
+		// appended before the commit, and so may outlive a failed one.
+		
+		final long checkpointSeq = dbManager.getTallyCheckpoint();
+		
+		journal.open(new VoteJournal.Visitor() {
+			@Override
+			public void onVote(long seq, long time, int eID, String sessionID) {
+				AtomicInteger count = tally.get(eID);
+				if(seq > checkpointSeq && count != null && TallyEngine.this.dbManager.hasSessionID(sessionID)) {
+					count.incrementAndGet();
+				}
+			}
+		});
+		
+		// the replayed votes are written to the database right away
+		
+		checkpoint();
+		
+		// the votes counted before the journal was started are stored once, as the difference of
+		// the tally and the journal - all of the tally for a new journal, and for a journal started
+		// before the base was stored, the votes cast without it
+		
+		HashMap<Integer, Integer> stored = dbManager.getTallyBase();
+		if(stored.isEmpty()) {
+			HashMap<Integer, Integer> journaled = countJournal(null);
+			int[] eIDs = new int[tally.size()];
+			int[] counts = new int[tally.size()];
+			int i = 0;
+			
+			for(Map.Entry<Integer, AtomicInteger> entry : tally.entrySet()) {
+				Integer count = journaled.get(entry.getKey());
+				eIDs[i] = entry.getKey();
+				counts[i] = Math.max(0, entry.getValue().get() - (count == null ? 0 : count));
+				stored.put(eIDs[i], counts[i]);
+				i++;
+			}
+			
+			dbManager.setTallyBase(eIDs, counts);
+		}
+		
+		base = stored;
+	}
+	
+	// the outcome of a recount of the votes - the number of votes journaled, and whether the
+	// recount matches the tally held in memory
+	
+	public static class Recount {
+		private final int votes;
+		private final boolean matches;
+		private final String error;
+		
+		Recount(int votes, boolean matches) {
+			this.votes = votes;
+			this.matches = matches;
+			this.error = null;
+		}
+		
+		// constructor for a recount that could not be made, bearing the reason
+		
+		public Recount(String error) {
+			this.votes = 0;
+			this.matches = true;
+			this.error = error;
+		}
+		
+		// returns true if the tally can be rebuilt from the recount, i.e. if it was made and
+		// differs from the tally
+		
+		public boolean canRebuild() {
+			return error == null && !matches;
+		}
+		
+		@Override
+		public String toString() {
+			if(error != null) {
+				return error;
+			}
+			
+			return "Vote journal recount: " + votes + " votes, " + (matches ? "matches the tally" : "differs from the tally");
+		}
+	}
+	
+	// returns the tally shared by the application, which is loaded on first use
+	
+	public static synchronized TallyEngine getInstance(Context context) throws IOException {
+		if(instance == null) {
+			instance = new TallyEngine(DatabaseManager.getInstance(context));
+		}
+		
+		return instance;
+	}
+	
+	// discards the tally shared by the application, along with its journal, without writing it to
+	// the database. called whenever the database file is replaced or removed, since the journal
+	// belongs to the previous file.
+	
+	public static synchronized void discardInstance() {
+		if(instance != null) {
+			instance.journal.close();
+			instance = null;
+		}
+		
+		VoteJournal.delete(journalDir);
+	}
+	
+	// casts the vote of the voter bearing the NID value provided for the entity bearing the e_id
+	// provided, along with the session ID printed on the ballot. the vote is counted once its
+	// transaction is committed, and the tally checkpointed every so many votes.
+	
+	public synchronized int castVote(int eID, String NID_VAL, String sessionID) {
+		int status = dbManager.castVote(eID, NID_VAL, sessionID, this);
+		
+		if(status == DatabaseManager.VOTE_CAST) {
+			tally.get(eID).incrementAndGet();
+			
+			if(++pending >= checkpointVotes) {
+				try {
+					checkpoint();
+				} catch(IOException e) {
+					e.printStackTrace();
+				}
+			}
+		}
+		
+		return status;
+	}
+	
+	// checks if the entity bearing the e_id provided is being tallied
+	
+	boolean hasEntity(int eID) {
+		return tally.containsKey(eID);
+	}
+	
+	// appends the record of a vote to the journal, and waits until it is synced to the storage.
+	// called by the DatabaseManager class within the transaction of the vote, before it is committed.
+	
+	void appendJournal(int eID, String sessionID) throws IOException {
+		journal.commit(journal.append(System.currentTimeMillis(), eID, sessionID));
+	}
+	
+	// writes the vote counts to the entity table, along with the position of the last vote in the
+	// journal. the votes up to that position are skipped as the journal is replayed.
+	
+	public synchronized void checkpoint() throws IOException {
+		int[] eIDs = new int[tally.size()];
+		int[] counts = new int[tally.size()];
+		int i = 0;
+		
+		for(Map.Entry<Integer, AtomicInteger> entry : tally.entrySet()) {
+			eIDs[i] = entry.getKey();
+			counts[i] = entry.getValue().get();
+			i++;
+		}
+		
+		dbManager.checkpointTally(eIDs, counts, journal.getLastSeq());
+		pending = 0;
+	}
+	
+	// counts the votes in the journal for each entity, counting each vote whose session ID has
+	// been stored. the number of votes counted is placed in the array provided, if any.
+	
+	private HashMap<Integer, Integer> countJournal(final int[] votes) throws IOException {
+		final HashMap<Integer, Integer> journaled = new HashMap<Integer, Integer>();
+		
+		journal.replay(new VoteJournal.Visitor() {
+			@Override
+			public void onVote(long seq, long time, int eID, String sessionID) {
+				if(tally.containsKey(eID) && dbManager.hasSessionID(sessionID)) {
+					Integer count = journaled.get(eID);
+					journaled.put(eID, count == null ? 1 : count + 1);
+					if(votes != null) {
+						votes[0]++;
+					}
+				}
+			}
+		});
+		
+		return journaled;
+	}
+	
+	// returns the vote count of the entity bearing the e_id provided, as recounted - the base of
+	// the tally plus the votes journaled
+	
+	private int recounted(HashMap<Integer, Integer> journaled, int eID) {
+		Integer count = journaled.get(eID);
+		Integer from = base.get(eID);
+		
+		return (from == null ? 0 : from) + (count == null ? 0 : count);
+	}
+	
+	// recounts the votes from the journal and compares the recount with the tally. the tally is
+	// left as it is either way.
+	
+	public synchronized Recount verify() {
+		int[] votes = new int[1];
+		HashMap<Integer, Integer> journaled;
+		
+		try {
+			journaled = countJournal(votes);
+		} catch(IOException e) {
+			e.printStackTrace();
+			return new Recount("Vote journal could not be read: " + e.getMessage());
+		}
+		
+		boolean matches = true;
+		for(Map.Entry<Integer, AtomicInteger> entry : tally.entrySet()) {
+			if(entry.getValue().get() != recounted(journaled, entry.getKey())) {
+				matches = false;
+			}
+		}
+		
+		return new Recount(votes[0], matches);
+	}
+	
+	// replaces the tally with the recount from the journal, and writes it to the entity table.
+	// only to be run at the request of an administrator, once a recount has been found to differ.
+	// returns the outcome as text, e.g. for the report.
+	
+	public synchronized String rebuild() {
+		HashMap<Integer, Integer> journaled;
+		
+		try {
+			journaled = countJournal(null);
+		} catch(IOException e) {
+			e.printStackTrace();
+			return "Vote journal could not be read: " + e.getMessage();
+		}
+		
+		for(Map.Entry<Integer, AtomicInteger> entry : tally.entrySet()) {
+			entry.getValue().set(recounted(journaled, entry.getKey()));
+		}
+		
+		try {
+			checkpoint();
+		} catch(IOException e) {
+			e.printStackTrace();
+			return "Tally rebuilt, but could not be written: " + e.getMessage();
+		}
+		
+		return "Tally rebuilt from the vote journal";
+	}
+	
+	// returns the entities along with their current vote counts, read from memory
+	
+	public synchronized ArrayList<Entity> getEntities() {
+		ArrayList<Entity> current = new ArrayList<Entity>();
+		
+		for(Entity entity : entities) {
+			current.add(new Entity(entity.geteID(), entity.geteName(), entity.getcName(), entity.geteSym(),
+					tally.get(entity.geteID()).get()));
+		}
+		
+		return current;
+	}
+}
@@ -0,0 +1,262 @@
+/*************************************************************
+ * TemplateBankManager Class
+ * Keeps track of the templates that are currently held in the 200 slots of the fingerprint
+ * scanner, such that the identification process only uploads the templates that are not
+ * resident already. The templates that are matched most often can be pinned to the scanner.
+ * A part of the SmartVote application, developed by ZedApps.
+ *
+ * @author Shamah M Zoha
+ * @email shamah1992@gmail.com
+ * @github bitbucket.org/smzoha/
+ ************************************************************/
+
+package com.zedapps.smartvote;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+
+public class TemplateBankManager {
+	
+	public static final int SLOT_COUNT = 200;			 // the number of template slots in the scanner
+	public static final int MAX_PINNED = SLOT_COUNT / 4; // the maximum number of slots that can be pinned
+	
+	// a class representing the slot that a template of a bank is assigned to. if the template
+	// is not resident, it has to be uploaded to the slot before the bank is verified.
+	
+	public static class Slot {
+		public final int id;
+		public final String nid;
+		public final boolean resident;
+		
+		Slot(int id, String nid, boolean resident) {
+			this.id = id;
+			this.nid = nid;
+			this.resident = resident;
+		}
+	}
+	
+	private final String[] slotNID = new String[SLOT_COUNT]; // the NID value of the template held in each slot
+	private final HashMap<String, Integer> residentSlot = new HashMap<String, Integer>(); // the slot of each resident NID
+	private final HashSet<String> pinned = new HashSet<String>(); // the NID values that are never evicted
+	
+	private int nextVictim = 0; // the slot from which the search for a slot to evict starts
+	private long hits = 0;		// the number of templates that were resident when needed
+	private long misses = 0;	// the number of templates that had to be uploaded
+	
+	/******************************************************
+	 * 				GETTER & SETTER METHODS				  *
+	 ******************************************************/
+	
+	public synchronized long getHitCount() {
+		return hits;
+	}
+	
+	public synchronized long getMissCount() {
+		return misses;
+	}
+	
+	// returns the share of the templates that were resident when needed, in percentage
+	
+	public synchronized int getHitRate() {
+		long total = hits + misses;
+		return total == 0 ? 0 : (int)((hits * 100) / total);
+	}
+	
+	// returns the NID value of the template held in the slot, or null if the slot is empty
+	
+	public synchronized String getNID(int slot) {
+		if(slot < 0 || slot >= SLOT_COUNT) {
+			return null;
+		}
+		
+		return slotNID[slot];
+	}
+	
+	// checks if the template of any of the NID values provided is held by the scanner
+	
+	public synchronized boolean holdsAny(List<String> nids) {
+		for(String nid : nids) {
+			if(residentSlot.containsKey(nid)) {
+				return true;
+			}
+		}
+		
+		return false;
+	}
+	
+	// pins the templates of the NID values provided, which are then kept resident across the
+	// identifications, e.g. the administrators. only the first MAX_PINNED values are pinned.
+	
+	public synchronized void setPinned(List<String> nids) {
+		pinned.clear();
+		
+		for(int i = 0; i < nids.size() && i < MAX_PINNED; i++) {
+			pinned.add(nids.get(i));
+		}
+	}
+	
+	/******************************************************
+	 * 			END OF GETTER & SETTER METHODS			  *
+	 ******************************************************/
+	
+	// splits the candidates provided into banks, in the order that they are to be verified.
+	// the first bank holds the resident candidates, along with the pinned ones that are not
+	// resident as far as there are slots free or evictable for them, such that it costs little
+	// to no upload. the pinned candidates that do not fit are moved to the front of the rest of
+	// the candidates, which are split over the slots that are not pinned.
+	
+	public synchronized List<List<String>> planBanks(List<String> candidates) {
+		List<List<String>> banks = new ArrayList<List<String>>();
+		List<String> firstBank = new ArrayList<String>();
+		List<String> pinnedMissing = new ArrayList<String>();
+		List<String> others = new ArrayList<String>();
+		
+		for(String nid : candidates) {
+			if(residentSlot.containsKey(nid)) {
+				firstBank.add(nid);
+			} else if(pinned.contains(nid)) {
+				pinnedMissing.add(nid);
+			} else {
+				others.add(nid);
+			}
+		}
+		
+		// the slots left for the pinned candidates that are not resident are the ones not held by
+		// the resident candidates, nor by the pinned templates that are not part of the search
+		
+		HashSet<String> inSearch = new HashSet<String>(candidates);
+		int room = SLOT_COUNT - firstBank.size();
+		
+		for(String nid : pinned) {
+			if(residentSlot.containsKey(nid) && !inSearch.contains(nid)) {
+				room--;
+			}
+		}
+		
+		int fitting = Math.max(0, Math.min(room, pinnedMissing.size()));
+		firstBank.addAll(pinnedMissing.subList(0, fitting));
+		others.addAll(0, pinnedMissing.subList(fitting, pinnedMissing.size()));
+		
+		if(!firstBank.isEmpty()) {
+			banks.add(firstBank);
+		}
+		
+		int capacity = SLOT_COUNT - pinned.size();
+		
+		for(int i = 0; i < others.size(); i += capacity) {
+			banks.add(others.subList(i, Math.min(i + capacity, others.size())));
+		}
+		
+		return banks;
+	}
+	
+	// assigns a slot to each template of the bank provided. the resident templates keep their
+	// slots, while the rest are assigned the slots of the templates that are not part of the bank
+	// and not pinned. the slots that are to be uploaded are marked empty until setResident is called.
+	// the banks planned by planBanks always fit; a bank that does not is refused as a whole, rather
+	// than having its last templates left out of the search.
+	
+	public synchronized List<Slot> prepareBank(List<String> bank) {
+		List<Slot> slots = new ArrayList<Slot>(bank.size());
+		HashSet<Integer> inUse = new HashSet<Integer>();
+		
+		for(String nid : bank) {
+			Integer slot = residentSlot.get(nid);
+			if(slot != null) {
+				inUse.add(slot);
+			}
+		}
+		
+		int free = 0;
+		for(int i = 0; i < SLOT_COUNT; i++) {
+			if(!inUse.contains(i) && !pinned.contains(slotNID[i])) {
+				free++;
+			}
+		}
+		
+		if(bank.size() - inUse.size() > free) {
+			throw new IllegalStateException("No slots left for " + (bank.size() - inUse.size())
+					+ " of the templates of the bank");
+		}
+		
+		for(String nid : bank) {
+			Integer slot = residentSlot.get(nid);
+			
+			if(slot != null) {
+				hits++;
+				slots.add(new Slot(slot, nid, true));
+			} else {
+				int victim = findVictim(inUse);
+				clearSlot(victim);
+				inUse.add(victim);
+				misses++;
+				slots.add(new Slot(victim, nid, false));
+			}
+		}
+		
+		return slots;
+	}
+	
+	// marks the template of the NID value as resident in the slot, once it has been uploaded
+	
+	public synchronized void setResident(int slot, String nid) {
+		clearSlot(slot);
+		evict(nid);
+		slotNID[slot] = nid;
+		residentSlot.put(nid, slot);
+	}
+	
+	// marks the slot holding the template of the NID value as empty, e.g. when the user is removed
+	
+	public synchronized void evict(String nid) {
+		Integer slot = residentSlot.remove(nid);
+		if(slot != null) {
+			slotNID[slot] = null;
+		}
+	}
+	
+	// marks all the slots as empty, e.g. when the connection with the scanner is opened again
+	
+	public synchronized void invalidate() {
+		for(int i = 0; i < SLOT_COUNT; i++) {
+			slotNID[i] = null;
+		}
+		
+		residentSlot.clear();
+	}
+	
+	// marks the slot provided as empty
+	
+	private void clearSlot(int slot) {
+		String prev = slotNID[slot];
+		if(prev != null) {
+			residentSlot.remove(prev);
+			slotNID[slot] = null;
+		}
+	}
+	
+	// finds a slot that can be overwritten, i.e. that is neither in use by the current bank nor
+	// holding a pinned template. empty slots are preferred, after which the slots are taken in
+	// a round robin fashion. returns -1 if no such slot exists.
+	
+	private int findVictim(HashSet<Integer> inUse) {
+		for(int i = 0; i < SLOT_COUNT; i++) {
+			if(slotNID[i] == null && !inUse.contains(i)) {
+				return i;
+			}
+		}
+		
+		for(int n = 0; n < SLOT_COUNT; n++) {
+			int i = (nextVictim + n) % SLOT_COUNT;
+			
+			if(!inUse.contains(i) && !pinned.contains(slotNID[i])) {
+				nextVictim = (i + 1) % SLOT_COUNT;
+				return i;
+			}
+		}
+		
+		return -1;
+	}
+}
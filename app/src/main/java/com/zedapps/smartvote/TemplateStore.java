@@ -0,0 +1,398 @@
+/*************************************************************
+ * TemplateStore Class
+ * Holds all the enrolled fingerprint templates in a single packed file, which is memory-mapped
+ * once at startup, along with an index from the NID value to the offset of the template.
+ * Replaces the fpFiles directory, which had one file per template.
+ * A part of the SmartVote application, developed by ZedApps.
+ *
+ * @author Shamah M Zoha
+ * @email shamah1992@gmail.com
+ * @github bitbucket.org/smzoha/
+ ************************************************************/
+
+package com.zedapps.smartvote;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.FilenameUtils;
+
+public class TemplateStore {
+	
+	// the layout of the store file is a header, containing the magic number and the version,
+	// followed by the records. each record holds a status byte, the length of the NID value,
+	// the NID value, the length of the template and the template itself.
+	
+	private static final int MAGIC = 0x53565453; // "SVTS"
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = 8;
+	
+	private static final byte REC_LIVE = 1;		// status byte of a record in use
+	private static final byte REC_DELETED = 0;	// status byte of a removed record (tombstone)
+	
+	private final File storeFile;	// the packed template file
+	private MappedByteBuffer mapped; // the memory-mapped view of the file
+	
+	// the index from the NID value to the offset of the record, kept in the order of enrollment
+	
+	private final LinkedHashMap<String, Integer> index = new LinkedHashMap<String, Integer>();
+	
+	private long deadBytes = 0; // the number of bytes taken by removed records
+	
+	// constructor that takes in the store file. should the file not exist, it is built from
+	// the legacy directory of template files provided, which is removed once the store file is
+	// in place. the file is then memory-mapped and the index is built by scanning it once.
+	
+	public TemplateStore(File storeFile, File legacyDir) throws IOException {
+		this.storeFile = storeFile;
+		
+		if(!storeFile.exists()) {
+			create(legacyDir != null && legacyDir.isDirectory() ? legacyDir : null);
+			FileUtils.deleteQuietly(legacyDir);
+		}
+		
+		load();
+	}
+	
+	/******************************************************
+	 * 				GETTER & SETTER METHODS				  *
+	 ******************************************************/
+	
+	public synchronized int size() {
+		return index.size();
+	}
+	
+	public synchronized boolean contains(String nid) {
+		return index.containsKey(nid);
+	}
+	
+	// returns the NID values of all the templates, in the order of enrollment
+	
+	public synchronized List<String> getNIDs() {
+		return new ArrayList<String>(index.keySet());
+	}
+	
+	/******************************************************
+	 * 			END OF GETTER & SETTER METHODS			  *
+	 ******************************************************/
+	
+	// returns the template stored against the NID value, or null if there is none.
+	// the template is copied out of the memory-mapped file.
+	
+	public synchronized byte[] getTemplate(String nid) {
+		Integer offset = index.get(nid);
+		if(offset == null) {
+			return null;
+		}
+		
+		int pos = offset + 1;
+		pos += 1 + (mapped.get(pos) & 0xFF);
+		int len = mapped.getInt(pos);
+		
+		byte[] data = new byte[len];
+		ByteBuffer view = mapped.duplicate();
+		view.position(pos + 4);
+		view.get(data);
+		
+		return data;
+	}
+	
+	// appends the template against the NID value provided. if the NID value already holds a
+	// template, the previous record is removed first. the file is mapped again, since it grows.
+	
+	public synchronized void append(String nid, byte[] template) throws IOException {
+		if(index.containsKey(nid)) {
+			remove(nid);
+		}
+		
+		byte[] nidBytes = nid.getBytes("US-ASCII");
+		ByteBuffer rec = ByteBuffer.allocate(recordSize(nidBytes.length, template.length));
+		rec.put(REC_LIVE).put((byte) nidBytes.length).put(nidBytes)
+				.putInt(template.length).put(template);
+		rec.flip();
+		
+		RandomAccessFile raf = new RandomAccessFile(storeFile, "rw");
+		try {
+			FileChannel ch = raf.getChannel();
+			long offset = ch.size();
+			ch.write(rec, offset);
+			ch.force(false);
+			index.put(nid, (int) offset);
+		} finally {
+			raf.close();
+		}
+		
+		map();
+	}
+	
+	// appends the templates provided against their NID values as one block, with a single sync
+	// and mapping of the file, e.g. for a bulk import. the previous records of the NID values
+	// that already hold a template are removed first.
+	
+	public synchronized void appendAll(Map<String, byte[]> templates) throws IOException {
+		for(String nid : templates.keySet()) {
+			if(index.containsKey(nid)) {
+				remove(nid);
+			}
+		}
+		
+		RandomAccessFile raf = new RandomAccessFile(storeFile, "rw");
+		try {
+			FileChannel ch = raf.getChannel();
+			long offset = ch.size();
+			
+			for(Map.Entry<String, byte[]> entry : templates.entrySet()) {
+				byte[] nidBytes = entry.getKey().getBytes("US-ASCII");
+				byte[] template = entry.getValue();
+				
+				ByteBuffer rec = ByteBuffer.allocate(recordSize(nidBytes.length, template.length));
+				rec.put(REC_LIVE).put((byte) nidBytes.length).put(nidBytes)
+						.putInt(template.length).put(template);
+				rec.flip();
+				
+				long start = offset;
+				while(rec.hasRemaining()) {
+					offset += ch.write(rec, offset);
+				}
+				index.put(entry.getKey(), (int) start);
+			}
+			
+			ch.force(false);
+		} finally {
+			raf.close();
+		}
+		
+		map();
+	}
+	
+	// appends the template file provided against the NID value
+	
+	public void append(String nid, File templateFile) throws IOException {
+		append(nid, FileUtils.readFileToByteArray(templateFile));
+	}
+	
+	// removes the template of the NID value provided, by marking its record as deleted.
+	// the record is kept in the file until the next compaction.
+	
+	public synchronized void remove(String nid) {
+		Integer offset = index.remove(nid);
+		if(offset == null) {
+			return;
+		}
+		
+		mapped.put(offset, REC_DELETED);
+		mapped.force();
+		deadBytes += recordLength(offset);
+	}
+	
+	// checks if the removed records take more space than the templates in use
+	
+	public synchronized boolean needsCompaction() {
+		return deadBytes > 0 && deadBytes >= mapped.capacity() - HEADER_SIZE - deadBytes;
+	}
+	
+	// rewrites the store file with only the records in use, to reclaim the space taken by the
+	// removed records. the new file is written aside and renamed over the store file, such that
+	// an interrupted compaction leaves the store intact.
+	
+	public synchronized void compact() throws IOException {
+		File tmpFile = new File(storeFile.getPath() + ".tmp");
+		RandomAccessFile raf = new RandomAccessFile(tmpFile, "rw");
+		
+		try {
+			raf.setLength(0);
+			FileChannel ch = raf.getChannel();
+			ch.write(header());
+			
+			for(Integer offset : index.values()) {
+				ByteBuffer rec = mapped.duplicate();
+				rec.position(offset);
+				rec.limit(offset + recordLength(offset));
+				ch.write(rec);
+			}
+			
+			ch.force(true);
+		} finally {
+			raf.close();
+		}
+		
+		if(!tmpFile.renameTo(storeFile)) {
+			throw new IOException("Failed to replace " + storeFile.getName());
+		}
+		
+		load();
+	}
+	
+	// creates the store file, holding the templates of the legacy directory provided, if any. the
+	// file is written aside, synced and renamed into place, such that an interrupted import leaves
+	// no store file behind, and the legacy files are read again on next start.
+	
+	private void create(File legacyDir) throws IOException {
+		File tmpFile = new File(storeFile.getPath() + ".tmp");
+		RandomAccessFile raf = new RandomAccessFile(tmpFile, "rw");
+		
+		try {
+			raf.setLength(0);
+			FileChannel ch = raf.getChannel();
+			ch.write(header());
+			
+			if(legacyDir != null) {
+				importDirectory(legacyDir, ch);
+			}
+			
+			ch.force(true);
+		} finally {
+			raf.close();
+		}
+		
+		if(!tmpFile.renameTo(storeFile)) {
+			throw new IOException("Failed to create " + storeFile.getName());
+		}
+	}
+	
+	// imports all the template files in the directory provided, with the file name (without the
+	// extension) as the NID value, writing them to the channel provided. the files are read in a
+	// single pass and written as one block. should two files bear the same NID value, the record
+	// written last is the one indexed.
+	
+	private void importDirectory(File dir, FileChannel ch) throws IOException {
+		File[] files = dir.listFiles();
+		if(files == null) {
+			return;
+		}
+		
+		Arrays.sort(files);
+		
+		for(File f : files) {
+			byte[] nidBytes = FilenameUtils.removeExtension(f.getName()).getBytes("US-ASCII");
+			byte[] template = readFile(f);
+			
+			ByteBuffer rec = ByteBuffer.allocate(recordSize(nidBytes.length, template.length));
+			rec.put(REC_LIVE).put((byte) nidBytes.length).put(nidBytes)
+					.putInt(template.length).put(template);
+			rec.flip();
+			
+			while(rec.hasRemaining()) {
+				ch.write(rec);
+			}
+		}
+	}
+	
+	// maps the store file and builds the index by scanning the records. a record that is cut
+	// short, e.g. by a crash while appending, ends the scan and is truncated from the file.
+	
+	private void load() throws IOException {
+		map();
+		index.clear();
+		deadBytes = 0;
+		
+		if(mapped.capacity() < HEADER_SIZE || mapped.getInt(0) != MAGIC) {
+			throw new IOException(storeFile.getName() + " is not a template store");
+		}
+		
+		int pos = HEADER_SIZE;
+		int end = mapped.capacity();
+		
+		while(pos + 2 <= end) {
+			int nidLen = mapped.get(pos + 1) & 0xFF;
+			if(pos + 2 + nidLen + 4 > end) {
+				break;
+			}
+			
+			int recLen = recordLength(pos);
+			if(recLen < 0 || pos + recLen > end) {
+				break;
+			}
+			
+			if(mapped.get(pos) == REC_LIVE) {
+				byte[] nidBytes = new byte[nidLen];
+				ByteBuffer view = mapped.duplicate();
+				view.position(pos + 2);
+				view.get(nidBytes);
+				index.put(new String(nidBytes, "US-ASCII"), pos);
+			} else {
+				deadBytes += recLen;
+			}
+			
+			pos += recLen;
+		}
+		
+		if(pos < end) {
+			RandomAccessFile raf = new RandomAccessFile(storeFile, "rw");
+			try {
+				raf.setLength(pos);
+			} finally {
+				raf.close();
+			}
+			
+			map();
+		}
+	}
+	
+	// maps the whole store file into memory
+	
+	private void map() throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(storeFile, "rw");
+		try {
+			FileChannel ch = raf.getChannel();
+			mapped = ch.map(FileChannel.MapMode.READ_WRITE, 0, ch.size());
+		} finally {
+			raf.close();
+		}
+	}
+	
+	// returns the length of the record at the offset provided, read from the mapped file
+	
+	private int recordLength(int offset) {
+		int nidLen = mapped.get(offset + 1) & 0xFF;
+		return recordSize(nidLen, mapped.getInt(offset + 2 + nidLen));
+	}
+	
+	// returns the size of a record, given the length of the NID value and the template
+	
+	private static int recordSize(int nidLen, int templateLen) {
+		return 2 + nidLen + 4 + templateLen;
+	}
+	
+	// returns a buffer holding the header of the store file
+	
+	private static ByteBuffer header() {
+		ByteBuffer hdr = ByteBuffer.allocate(HEADER_SIZE);
+		hdr.putInt(MAGIC).putInt(VERSION);
+		hdr.flip();
+		return hdr;
+	}
+	
+	// reads the whole file into a byte array, closing the stream once done
+	
+	private static byte[] readFile(File f) throws IOException {
+		byte[] data = new byte[(int) f.length()];
+		FileInputStream in = new FileInputStream(f);
+		
+		try {
+			int read = 0;
+			while(read < data.length) {
+				int n = in.read(data, read, data.length - read);
+				if(n < 0) {
+					break;
+				}
+				read += n;
+			}
+		} finally {
+			in.close();
+		}
+		
+		return data;
+	}
+}
@@ -0,0 +1,309 @@
+/*************************************************************
+ * VoteJournal Class
+ * The append-only journal of the votes cast, which the tally can be recounted from. Each vote is
+ * written as a binary record - the position of the vote in the journal, the time it was cast,
+ * the e_id of the entity and the session ID printed on the ballot - followed by a CRC32
+ * checksum, such that a record cut short or damaged ends the journal rather
+ * than being read back. The records are written to segment files which are preallocated, such
+ * that a record only changes the data of the file, and syncing it needs no update of the file
+ * size. Each vote is synced before it is committed; the votes are cast one at a time, hence
+ * there is no batch of votes to sync together.
+ * The voter is not recorded, such that the journal cannot link a voter with their ballot; the
+ * votes cast by each voter are only recorded by the hasVoted flag of the user table. The journal
+ * is kept in the private directory of the application, and removed along with the database it
+ * belongs to.
+ * A part of the SmartVote application, developed by ZedApps.
+ *
+ * @author Shamah M Zoha
+ * @email shamah1992@gmail.com
+ * @github bitbucket.org/smzoha/
+ ************************************************************/
+
+package com.zedapps.smartvote;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UTFDataFormatException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+public class VoteJournal {
+	
+	// the interface of the objects that the records are passed to as the journal is read
+	
+	public interface Visitor {
+		void onVote(long seq, long time, int eID, String sessionID);
+	}
+	
+	private static final int SEGMENT_SIZE = 1 << 20;	// the size that each segment is preallocated to
+	private static final int MAX_RECORD = 4096;		// the largest record accepted, to stop at garbage
+	private static final String SEGMENT_PREFIX = "votes-";
+	private static final String SEGMENT_SUFFIX = ".seg";
+	
+	private final File dir;					// the directory holding the segments
+	private final CRC32 crc = new CRC32();	// the checksum of the record being written
+	private final ByteArrayOutputStream recordBytes = new ByteArrayOutputStream(256);
+	private final DataOutputStream record = new DataOutputStream(recordBytes);
+	
+	private RandomAccessFile segment;	// the segment that the records are appended to
+	private FileChannel channel;		// the channel of the segment, which is synced
+	private int segmentIndex;			// the number of the segment
+	private int position;				// the offset in the segment that the next record is written at
+	private long lastSeq;				// the position of the last vote appended
+	private long durableSeq;			// the position of the last vote synced to the storage
+	
+	// constructor which takes in the directory holding the segments. the journal is opened
+	// through the open method.
+	
+	public VoteJournal(File dir) {
+		this.dir = dir;
+	}
+	
+	// reads the journal, passing each of the records to the visitor provided, and positions the
+	// journal to append after the last record that is intact. returns the position of that record,
+	// or 0 if the journal is empty.
+	
+	public synchronized long open(Visitor visitor) throws IOException {
+		if(!dir.exists() && !dir.mkdirs()) {
+			throw new IOException("Could not create " + dir);
+		}
+		
+		int[] indexes = listSegments(dir);
+		segmentIndex = indexes.length == 0 ? 1 : indexes[indexes.length - 1];
+		position = 0;
+		
+		for(int index : indexes) {
+			int end = scan(segmentFile(dir, index), visitor);
+			if(index == segmentIndex) {
+				position = end;
+			}
+		}
+		
+		openSegment(segmentIndex);
+		durableSeq = lastSeq;
+		
+		return lastSeq;
+	}
+	
+	// returns the position of the last vote appended
+	
+	public synchronized long getLastSeq() {
+		return lastSeq;
+	}
+	
+	// reads the whole journal again, passing each of the records to the visitor provided, e.g. to
+	// recount the votes. the records appended are not synced before being read.
+	
+	public synchronized void replay(Visitor visitor) throws IOException {
+		long last = lastSeq;
+		
+		for(int index : listSegments(dir)) {
+			scan(segmentFile(dir, index), visitor);
+		}
+		
+		lastSeq = last;
+	}
+	
+	// reads the records of the segment provided, and returns the offset after the last record
+	// that is intact. the preallocated part of the segment reads as a record of length zero.
+	
+	private int scan(File file, Visitor visitor) throws IOException {
+		RandomAccessFile in = new RandomAccessFile(file, "r");
+		byte[] data;
+		
+		try {
+			data = new byte[(int) Math.min(in.length(), SEGMENT_SIZE)];
+			in.readFully(data);
+		} finally {
+			in.close();
+		}
+		
+		ByteBuffer buf = ByteBuffer.wrap(data);
+		CRC32 check = new CRC32();
+		
+		while(buf.remaining() >= 8) {
+			int start = buf.position();
+			int length = buf.getInt();
+			
+			if(length <= 0 || length > MAX_RECORD || length + 4 > buf.remaining()) {
+				return start;
+			}
+			
+			check.reset();
+			check.update(data, start + 4, length);
+			buf.position(start + 4 + length);
+			
+			if((int) check.getValue() != buf.getInt()) {
+				return start;
+			}
+			
+			try {
+				ByteBuffer body = ByteBuffer.wrap(data, start + 4, length);
+				long seq = body.getLong();
+				long time = body.getLong();
+				int eID = body.getInt();
+				String sessionID = readUTF(body);
+				
+				lastSeq = Math.max(lastSeq, seq);
+				visitor.onVote(seq, time, eID, sessionID);
+			} catch(BufferUnderflowException e) {
+				return start;
+			}
+		}
+		
+		return buf.position();
+	}
+	
+	// reads a string written by the writeUTF method of the DataOutputStream class
+	
+	private static String readUTF(ByteBuffer body) throws UTFDataFormatException {
+		int length = body.getShort() & 0xFFFF;
+		byte[] bytes = new byte[length];
+		body.get(bytes);
+		
+		try {
+			return new String(bytes, "UTF-8");
+		} catch(IOException e) {
+			throw new UTFDataFormatException(e.getMessage());
+		}
+	}
+	
+	// appends the record of a vote to the journal, and returns its position. the record is not
+	// durable until the commit method returns for that position.
+	
+	public synchronized long append(long time, int eID, String sessionID) throws IOException {
+		recordBytes.reset();
+		record.writeInt(0);
+		record.writeLong(lastSeq + 1);
+		record.writeLong(time);
+		record.writeInt(eID);
+		record.writeUTF(sessionID);
+		record.writeInt(0);
+		
+		byte[] bytes = recordBytes.toByteArray();
+		int length = bytes.length - 8;
+		ByteBuffer buf = ByteBuffer.wrap(bytes);
+		
+		crc.reset();
+		crc.update(bytes, 4, length);
+		buf.putInt(0, length);
+		buf.putInt(bytes.length - 4, (int) crc.getValue());
+		
+		// a record which does not fit is written to the next segment, once the current one
+		// has been synced
+		
+		if(position + bytes.length > SEGMENT_SIZE) {
+			channel.force(false);
+			closeSegment();
+			openSegment(++segmentIndex);
+			position = 0;
+		}
+		
+		while(buf.hasRemaining()) {
+			channel.write(buf, position + buf.position());
+		}
+		
+		position += bytes.length;
+		return ++lastSeq;
+	}
+	
+	// syncs the journal to the storage, unless the record at the position provided has been
+	// synced already
+	
+	public synchronized void commit(long seq) throws IOException {
+		if(durableSeq >= seq) {
+			return;
+		}
+		
+		channel.force(false);
+		durableSeq = lastSeq;
+	}
+	
+	// opens the segment bearing the number provided, preallocating it if it is new
+	
+	private void openSegment(int index) throws IOException {
+		File file = segmentFile(dir, index);
+		boolean created = !file.exists();
+		
+		segment = new RandomAccessFile(file, "rw");
+		channel = segment.getChannel();
+		
+		if(segment.length() < SEGMENT_SIZE) {
+			segment.setLength(SEGMENT_SIZE);
+		}
+		
+		if(created) {
+			channel.force(true);
+		}
+	}
+	
+	// closes the segment being appended to
+	
+	private void closeSegment() throws IOException {
+		if(segment != null) {
+			segment.close();
+			segment = null;
+			channel = null;
+		}
+	}
+	
+	// syncs and closes the journal
+	
+	public synchronized void close() {
+		try {
+			if(channel != null) {
+				channel.force(false);
+			}
+			closeSegment();
+		} catch(IOException e) {
+			e.printStackTrace();
+		}
+	}
+	
+	// removes all the segments of the journal in the directory provided
+	
+	public static void delete(File dir) {
+		for(int index : listSegments(dir)) {
+			segmentFile(dir, index).delete();
+		}
+	}
+	
+	// returns the numbers of the segments in the directory provided, in order
+	
+	private static int[] listSegments(File dir) {
+		String[] names = dir.list();
+		if(names == null) {
+			return new int[0];
+		}
+		
+		int[] indexes = new int[names.length];
+		int count = 0;
+		
+		for(String name : names) {
+			if(name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX)) {
+				try {
+					indexes[count++] = Integer.parseInt(name.substring(SEGMENT_PREFIX.length(),
+							name.length() - SEGMENT_SUFFIX.length()));
+				} catch(NumberFormatException e) {
+					count--;
+				}
+			}
+		}
+		
+		indexes = Arrays.copyOf(indexes, count);
+		Arrays.sort(indexes);
+		return indexes;
+	}
+	
+	// returns the file of the segment bearing the number provided
+	
+	private static File segmentFile(File dir, int index) {
+		return new File(dir, SEGMENT_PREFIX + String.format("%06d", index) + SEGMENT_SUFFIX);
+	}
+}
@@ -0,0 +1,224 @@
+/*************************************************************
+ * VoterImporter Class
+ * Imports a voter roll into the database, along with the fingerprint templates and the photos
+ * of the voters. The roll is a CSV file, read one line at a time, with a row per user - the NID
+ * value, the first, middle and last names, the address, the date of birth, the names of the
+ * father and the mother, and optionally the isVoter, isAdmin and isSAdmin flags (a voter by
+ * default). The templates and the photos are read from the fpFiles and images directories next
+ * to the roll, named after the NID values. The rows are imported in batches - the templates of
+ * each batch are appended to the template store as one block first, and the rows then inserted
+ * as a single transaction, such that no user is committed without their template. A template is
+ * only appended should the store not hold one for the NID value already, hence importing the
+ * roll again fills in the templates of any users that were inserted without them.
+ * A part of the SmartVote application, developed by ZedApps.
+ *
+ * @author Shamah M Zoha
+ * @email shamah1992@gmail.com
+ * @github bitbucket.org/smzoha/
+ ************************************************************/
+
+package com.zedapps.smartvote;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+
+import org.apache.commons.io.FileUtils;
+
+public class VoterImporter {
+	
+	// the interface of the objects that the progress of the import is reported to. called on the
+	// thread running the import, after each batch.
+	
+	public interface ProgressListener {
+		void onProgress(int rows, int imported, long rowsPerSecond);
+	}
+	
+	private static final int BATCH_SIZE = 2000; // the number of rows inserted in a transaction
+	
+	private final DatabaseManager dbManager;	// the database that the users are inserted in
+	private final TemplateStore store;			// the store that the templates are appended to
+	private final File imgDir;					// the directory that the photos are copied to
+	
+	private int rows;		// the number of rows read
+	private int imported;	// the number of users inserted
+	private int skipped;	// the number of rows which are malformed or whose NID value exists already
+	private int templates;	// the number of templates appended
+	private int photos;		// the number of photos copied
+	
+	// constructor that takes in the database, the template store and the directory of the photos
+	
+	public VoterImporter(DatabaseManager dbManager, TemplateStore store, File imgDir) {
+		this.dbManager = dbManager;
+		this.store = store;
+		this.imgDir = imgDir;
+	}
+	
+	// imports the roll provided, reporting the progress to the listener provided, if any.
+	// returns the outcome of the import as text. should not be run on the UI thread.
+	
+	public String importRoll(File rollFile, ProgressListener listener) throws IOException {
+		File fpDir = new File(rollFile.getParentFile(), "fpFiles");
+		File photoDir = new File(rollFile.getParentFile(), "images");
+		BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(rollFile), "UTF-8"), 1 << 16);
+		ArrayList<String[]> batch = new ArrayList<String[]>(BATCH_SIZE);
+		long start = System.nanoTime();
+		
+		if(!imgDir.exists()) {
+			imgDir.mkdirs();
+		}
+		
+		try {
+			String line;
+			while((line = in.readLine()) != null) {
+				
+				// the header row, if any, and the empty lines are skipped
+				
+				if(line.trim().length() == 0 || (rows == 0 && line.startsWith("n_id"))) {
+					continue;
+				}
+				
+				rows++;
+				String[] data = parseRow(line);
+				
+				if(data == null) {
+					skipped++;
+				} else {
+					batch.add(data);
+				}
+				
+				if(batch.size() == BATCH_SIZE) {
+					importBatch(batch, fpDir, photoDir);
+					report(listener, start);
+				}
+			}
+			
+			importBatch(batch, fpDir, photoDir);
+			report(listener, start);
+		} finally {
+			in.close();
+		}
+		
+		return "Imported " + imported + " of " + rows + " users (" + skipped + " skipped), " + templates
+				+ " templates and " + photos + " photos, at " + rate(rows, start) + " rows/s";
+	}
+	
+	// appends the templates, if any, of the batch of users provided that the store does not hold
+	// yet, and then inserts the users and copies the photos of those inserted. the batch is
+	// emptied afterwards.
+	
+	private void importBatch(ArrayList<String[]> batch, File fpDir, File photoDir) throws IOException {
+		if(batch.isEmpty()) {
+			return;
+		}
+		
+		LinkedHashMap<String, byte[]> batchTemplates = new LinkedHashMap<String, byte[]>();
+		
+		for(String[] data : batch) {
+			File fpFile = new File(fpDir, data[0] + ".dat");
+			if(!store.contains(data[0]) && fpFile.exists()) {
+				batchTemplates.put(data[0], FileUtils.readFileToByteArray(fpFile));
+			}
+		}
+		
+		if(!batchTemplates.isEmpty()) {
+			store.appendAll(batchTemplates);
+			templates += batchTemplates.size();
+		}
+		
+		ArrayList<String> inserted = dbManager.insertUsers(batch);
+		imported += inserted.size();
+		skipped += batch.size() - inserted.size();
+		
+		for(String nid : inserted) {
+			File photoFile = new File(photoDir, nid + ".jpg");
+			if(photoFile.exists()) {
+				FileUtils.copyFile(photoFile, new File(imgDir, nid + ".jpg"));
+				photos++;
+			}
+		}
+		
+		batch.clear();
+	}
+	
+	// reports the progress of the import to the listener provided, if any
+	
+	private void report(ProgressListener listener, long start) {
+		if(listener != null) {
+			listener.onProgress(rows, imported, rate(rows, start));
+		}
+	}
+	
+	// returns the number of rows read per second since the start provided
+	
+	private static long rate(int rows, long start) {
+		long elapsed = Math.max(1, System.nanoTime() - start);
+		return rows * 1000000000L / elapsed;
+	}
+	
+	// splits a row of the roll into the data of the user, in the order taken by the insertUsers
+	// method of the DatabaseManager class, with the flags defaulting to a voter. the fields may be
+	// quoted, e.g. an address holding commas. returns null if the row is malformed.
+	
+	static String[] parseRow(String line) {
+		ArrayList<String> fields = new ArrayList<String>(11);
+		StringBuilder field = new StringBuilder();
+		boolean quoted = false;
+		
+		for(int i = 0; i < line.length(); i++) {
+			char c = line.charAt(i);
+			
+			if(quoted) {
+				if(c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+					field.append('"');
+					i++;
+				} else if(c == '"') {
+					quoted = false;
+				} else {
+					field.append(c);
+				}
+			} else if(c == '"') {
+				quoted = true;
+			} else if(c == ',') {
+				fields.add(field.toString().trim());
+				field.setLength(0);
+			} else {
+				field.append(c);
+			}
+		}
+		fields.add(field.toString().trim());
+		
+		if(fields.size() != 8 && fields.size() != 11) {
+			return null;
+		}
+		
+		String[] data = new String[11];
+		for(int i = 0; i < 11; i++) {
+			data[i] = i < fields.size() ? fields.get(i) : (i == 8 ? "1" : "0");
+		}
+		
+		// the NID value names the files of the user, and is stored in the template store as ASCII
+		
+		if(data[0].length() == 0 || data[0].length() > 255 || !data[0].matches("[A-Za-z0-9_-]+")) {
+			return null;
+		}
+		
+		try {
+			Long.parseLong(data[5]);
+			for(int i = 8; i < 11; i++) {
+				int flag = Integer.parseInt(data[i]);
+				if(flag != 0 && flag != 1) {
+					return null;
+				}
+			}
+		} catch(NumberFormatException e) {
+			return null;
+		}
+		
+		return data;
+	}
+}
@@ -0,0 +1,177 @@
+/*************************************************************
+ * VoterPageAdapter Class
+ * An adapter which allows the ListView in the RemoveUser activity to list the NID values of all
+ * the users, without reading them all into memory. The NID values are read from the database
+ * in pages, in the background, as the rows are scrolled into view, and only the last few pages
+ * used are held. Each page is sought from the last NID value of the page before it, which is
+ * kept for every page read, such that a page is read at the same cost wherever it lies.
+ * A part of the SmartVote application, developed by ZedApps.
+ *
+ * @author Shamah M Zoha
+ * @email shamah1992@gmail.com
+ * @github bitbucket.org/smzoha/
+ ************************************************************/
+
+package com.zedapps.smartvote;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import android.content.Context;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.BaseAdapter;
+import android.widget.TextView;
+
+public class VoterPageAdapter extends BaseAdapter {
+	
+	private static final int PAGE_SIZE = 100;	// the number of NID values read at a time
+	private static final int MAX_PAGES = 6;	// the number of pages held in memory
+	
+	Context appContext;	// the context of the activity
+	SVMain svmainObj;	// instance of SVMain class, which the pages are read through
+	
+	private int count;		// the number of users, as last read
+	private int generation;	// the number of times the list was reloaded, to discard the pages read before
+	
+	// the pages held, by their number, in the order they were last used
+	
+	private final LinkedHashMap<Integer, ArrayList<String>> pages = new LinkedHashMap<Integer, ArrayList<String>>(16, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Integer, ArrayList<String>> eldest) {
+			return size() > MAX_PAGES;
+		}
+	};
+	
+	private final HashSet<Integer> loading = new HashSet<Integer>(); // the pages being read
+	private final ArrayList<String> boundaries = new ArrayList<String>(); // the last NID value of each page read, in order
+	
+	// constructor that assigns the values provided into the variables. the list is empty until
+	// the reload method is called.
+	
+	public VoterPageAdapter(Context context, SVMain svmain) {
+		appContext = context;
+		svmainObj = svmain;
+	}
+	
+	// discards the pages held and reads the number of users again, e.g. after a user is removed.
+	// the pages are read again as the rows are displayed.
+	
+	public void reload() {
+		final int current = ++generation;
+		pages.clear();
+		loading.clear();
+		boundaries.clear();
+		
+		DBExecutor.read(new Callable<Integer>() {
+			@Override
+			public Integer call() {
+				return svmainObj.getUserCount();
+			}
+		}, new DBExecutor.Callback<Integer>() {
+			@Override
+			public void onResult(Integer result) {
+				if(current == generation && result != null) {
+					count = result;
+					notifyDataSetChanged();
+				}
+			}
+		});
+	}
+	
+	@Override
+	public int getCount() {
+		return count;
+	}
+	
+	// returns the NID value at the position provided, or null if its page has not been read yet,
+	// in which case the page is read in the background
+	
+	@Override
+	public String getItem(int pos) {
+		int pageIndex = pos / PAGE_SIZE;
+		ArrayList<String> page = pages.get(pageIndex);
+		
+		// the next page is read ahead as the end of the page is approached
+		
+		if(pos % PAGE_SIZE >= PAGE_SIZE * 3 / 4 && (pageIndex + 1) * PAGE_SIZE < count) {
+			loadPage(pageIndex + 1);
+		}
+		
+		if(page == null) {
+			loadPage(pageIndex);
+			return null;
+		}
+		
+		int offset = pos % PAGE_SIZE;
+		return offset < page.size() ? page.get(offset) : null;
+	}
+	
+	@Override
+	public long getItemId(int pos) {
+		return pos;
+	}
+	
+	// reads the page bearing the number provided in the background, unless it is held or being
+	// read already. a page can only be sought once the last NID value of the page before it is
+	// known, hence should the list be scrolled past the pages read, the pages in between are read
+	// first, in order. the rows are displayed again once a page has been read, which asks for
+	// the next page towards the rows displayed.
+	
+	private void loadPage(int pageIndex) {
+		final int index = Math.min(pageIndex, boundaries.size());
+		
+		if(pages.containsKey(index) || !loading.add(index)) {
+			return;
+		}
+		
+		final int current = generation;
+		final String after = index == 0 ? "" : boundaries.get(index - 1);
+		
+		DBExecutor.read(new Callable<ArrayList<String>>() {
+			@Override
+			public ArrayList<String> call() {
+				return svmainObj.getUserNIDs(after, PAGE_SIZE);
+			}
+		}, new DBExecutor.Callback<ArrayList<String>>() {
+			@Override
+			public void onResult(ArrayList<String> page) {
+				if(current != generation) {
+					return;
+				}
+				
+				loading.remove(index);
+				if(page != null) {
+					if(index == boundaries.size() && !page.isEmpty()) {
+						boundaries.add(page.get(page.size() - 1));
+					}
+					
+					pages.put(index, page);
+					notifyDataSetChanged();
+				}
+			}
+		});
+	}
+	
+	// returns the row displaying the NID value at the position provided, reusing the row provided
+	// if any. the row reads "Loading..." until the page holding the NID value has been read.
+	
+	@Override
+	public View getView(int pos, View convertView, ViewGroup parent) {
+		View rowView = convertView;
+		
+		if(rowView == null) {
+			LayoutInflater lInflater = (LayoutInflater) appContext.getSystemService(Context.LAYOUT_INFLATER_SERVICE);
+			rowView = lInflater.inflate(android.R.layout.simple_list_item_1, parent, false);
+		}
+		
+		String nid = getItem(pos);
+		((TextView) rowView.findViewById(android.R.id.text1)).setText(nid == null ? "Loading..." : nid);
+		
+		return rowView;
+	}
+}
@@ -1,7 +1,8 @@
 /*************************************************************
  * Candidate Class
  * The class that stores the basic information about the candidate, to show them in the EBallot list.
- * Basically, a stripped down version of the Entity class.
+ * Basically, a stripped down version of the Entity class. Only the path of the symbol is held,
+ * which is decoded by the BallotArrayAdapter as the candidate is displayed.
  * A part of the SmartVote application, developed by ZedApps.
  * 
  * @author Shamah M Zoha
@@ -11,24 +12,17 @@
 
 package com.zedapps.smartvote.modules;
 
-import java.io.File;
-
-import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
-
 public class Candidate {
 	
 	private String candidate_name; // string object that holds the candidate name
-	private Bitmap entity_symbol;  // bitmap object that holds the data for the entity symbol
+	private String entity_symbol_path; // string object that holds the path to the image file of the entity symbol
 
 	
 	// default constructor which takes in a candidate name field, as well as the path for the image file of symbol.
-	// this path is used to create bitmap object and assign it to the local bitmap variable.
-	// the bitmap object is created using the createBMP method, which can be found below. 
 	
 	public Candidate(String cn, String es_path) {
 		candidate_name = cn;
-		entity_symbol = createBMP(es_path);
+		entity_symbol_path = es_path;
 	}
 	
 	
@@ -43,31 +37,15 @@ public class Candidate {
 		this.candidate_name = candidate_name;
 	}
 	
-	public Bitmap getEntity_symbol() {
-		return entity_symbol;
+	public String getEntity_symbol_path() {
+		return entity_symbol_path;
 	}
-	public void setEntity_symbol(String es_path) {
-		this.entity_symbol = createBMP(es_path);
+	public void setEntity_symbol_path(String es_path) {
+		this.entity_symbol_path = es_path;
 	}
 	
 	/******************************************************
 	 * 			END OF GETTER & SETTER METHODS			  *
 	 ******************************************************/
 	
-	// method to create bitmap object from path passed to it.
-	// a file object is created using the string path provided, and should the file exist in the system,
-	// a bitmap object is created using the BitmapFactory class and the resulting bitmap object is returned
-	// as output.
-	
-	public Bitmap createBMP(String es_path) {
-		Bitmap retVal = null;
-		File imgFile = new File(es_path);
-		
-		if(imgFile.exists()) {
-			retVal = BitmapFactory.decodeFile(imgFile.getAbsolutePath());
-		}
-		
-		return retVal;
-	}
-	
 }
@@ -0,0 +1,205 @@
+/*************************************************************
+ * SessionIDGenerator Class
+ * Generates the 15 digit session IDs printed on the ballots. Each session ID is the value of
+ * a counter, which is incremented for every ID, passed through a keyed permutation of the 15
+ * digit numbers - a Feistel network over 50 bits, with AES under a key of the device as the
+ * round function, walked until the result has 15 digits. Since the permutation maps distinct
+ * counter values to distinct IDs, no two IDs are ever the same, and no record of the IDs issued
+ * is needed to check it; without the key, the IDs cannot be told from random ones. The key and
+ * the counter are stored in a file in the private directory of the application. The counter is
+ * reserved in blocks, such that the file is written once every so many IDs rather than for each.
+ * A part of the SmartVote application, developed by ZedApps.
+ *
+ * @author Shamah M Zoha
+ * @email shamah1992@gmail.com
+ * @github bitbucket.org/smzoha/
+ ************************************************************/
+
+package com.zedapps.smartvote.modules;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.SecretKeySpec;
+
+import android.os.Environment;
+
+public class SessionIDGenerator {
+	
+	// a constant that contains the path to the file that stores the key and the counter
+	
+	private static final File stateFile = new File(Environment.getDataDirectory().getPath() +
+			"/data/com.zedapps.smartvote/databases/sessionid.key");
+	
+	public static final long ID_RANGE = 1000000000000000L; // the number of 15 digit session IDs
+	
+	private static final int KEY_LENGTH = 16;	// the length of the AES key, in bytes
+	private static final int HALF_BITS = 25;	// the width of each half of the Feistel network
+	private static final long HALF_MASK = (1L << HALF_BITS) - 1;
+	private static final int ROUNDS = 8;		// the number of rounds of the Feistel network
+	private static final int RESERVE = 64;		// the number of counter values reserved at a time
+	
+	private static SessionIDGenerator instance; // the instance shared by the application
+	
+	private final byte[] key;					// the key of the device, as stored in the file
+	private final Cipher cipher;					// the round function, keyed with the key of the device
+	private final byte[] block = new byte[16];	// the input of the round function
+	private final byte[] output = new byte[16];	// the output of the round function
+	
+	private long counter;	// the counter value of the next session ID
+	private long reserved;	// the counter value up to which the values are reserved in the file
+	
+	// constructor that takes in the key and the counter value stored
+	
+	private SessionIDGenerator(byte[] key, long counter) throws GeneralSecurityException {
+		this.key = key;
+		cipher = Cipher.getInstance("AES/ECB/NoPadding");
+		cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(key, "AES"));
+		
+		this.counter = counter;
+		this.reserved = counter;
+	}
+	
+	// returns the generator shared by the application, which is loaded from the file on first
+	// use. should the file not exist, a new key is generated and stored, with the counter at 0.
+	
+	public static synchronized SessionIDGenerator getInstance() throws IOException {
+		if(instance == null) {
+			byte[] key = new byte[KEY_LENGTH];
+			long counter = 0;
+			
+			RandomAccessFile file = new RandomAccessFile(stateFile, "rw");
+			try {
+				if(file.length() >= KEY_LENGTH + 8) {
+					file.readFully(key);
+					counter = file.readLong();
+				} else {
+					new SecureRandom().nextBytes(key);
+					file.write(key);
+					file.writeLong(counter);
+					file.getFD().sync();
+				}
+			} finally {
+				file.close();
+			}
+			
+			try {
+				instance = new SessionIDGenerator(key, counter);
+			} catch(GeneralSecurityException e) {
+				throw new IOException(e.getMessage());
+			}
+		}
+		
+		return instance;
+	}
+	
+	// discards the generator, such that it is loaded from the file again on next use. called
+	// whenever the files in the database directory are replaced or removed.
+	
+	public static synchronized void discardInstance() {
+		instance = null;
+	}
+	
+	// returns the next session ID. the counter values are reserved in the file before being used,
+	// such that the values used before the application is restarted are not used again - the
+	// values reserved but not used are skipped.
+	
+	public synchronized long next() throws IOException {
+		if(counter >= ID_RANGE) {
+			throw new IOException("Session IDs exhausted");
+		}
+		
+		if(counter >= reserved) {
+			reserve(Math.min(counter + RESERVE, ID_RANGE));
+		}
+		
+		return permute(counter++);
+	}
+	
+	// writes the counter value provided to the file, and waits until it is synced to the storage.
+	// fails should the file no longer hold the key of the generator, e.g. if it has been removed,
+	// rather than storing the counter without the key.
+	
+	private void reserve(long upTo) throws IOException {
+		if(!stateFile.isFile()) {
+			throw new IOException("Session ID key not found");
+		}
+		
+		RandomAccessFile file = new RandomAccessFile(stateFile, "rw");
+		
+		try {
+			byte[] stored = new byte[KEY_LENGTH];
+			
+			if(file.length() < KEY_LENGTH + 8) {
+				throw new IOException("Session ID key not found");
+			}
+			
+			file.readFully(stored);
+			if(!Arrays.equals(stored, key)) {
+				throw new IOException("Session ID key has changed");
+			}
+			
+			file.seek(KEY_LENGTH);
+			file.writeLong(upTo);
+			file.getFD().sync();
+		} finally {
+			file.close();
+		}
+		
+		reserved = upTo;
+	}
+	
+	// maps the counter value provided to a session ID. the Feistel network permutes the 50 bit
+	// numbers; should the result not have 15 digits, the network is applied to it again until it
+	// does, which keeps the mapping one-to-one over the 15 digit numbers.
+	
+	private long permute(long value) {
+		long x = value;
+		
+		do {
+			x = feistel(x);
+		} while(x >= ID_RANGE);
+		
+		return x;
+	}
+	
+	// applies the Feistel network to the 50 bit number provided
+	
+	private long feistel(long x) {
+		long left = (x >>> HALF_BITS) & HALF_MASK;
+		long right = x & HALF_MASK;
+		
+		for(int i = 0; i < ROUNDS; i++) {
+			long next = left ^ round(i, right);
+			left = right;
+			right = next;
+		}
+		
+		return (left << HALF_BITS) | right;
+	}
+	
+	// the round function - the round number and the half provided, encrypted with the key and
+	// cut down to the width of a half
+	
+	private long round(int i, long half) {
+		block[0] = (byte) i;
+		block[1] = (byte) (half >>> 24);
+		block[2] = (byte) (half >>> 16);
+		block[3] = (byte) (half >>> 8);
+		block[4] = (byte) half;
+		
+		try {
+			cipher.doFinal(block, 0, block.length, output, 0);
+		} catch(GeneralSecurityException e) {
+			throw new IllegalStateException(e);
+		}
+		
+		return (((output[0] & 0xFFL) << 24) | ((output[1] & 0xFFL) << 16) | ((output[2] & 0xFFL) << 8)
+				| (output[3] & 0xFFL)) & HALF_MASK;
+	}
+}